@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.view.facelets.Tag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.jk.faces.config.JKFacesConfigurations;
+import com.jk.faces.tags.JKTagWrapper;
+
+/**
+ * Looks up the mapping of every tag of a synthetic page, the tags are wrapped
+ * in the setup so only the lookup is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JKFacesConfigurationsBenchmark {
+
+	@Param({ "1000" })
+	int tagCount;
+
+	@Param({ "100", "1000", "5000" })
+	int mappingsCount;
+
+	@Param({ "2", "8" })
+	int attributesCount;
+
+	private JKFacesConfigurations config;
+
+	private JKTagWrapper[] wrappers;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SyntheticFacelets.silenceLogging();
+		this.config = JKFacesConfigurations.getInstance();
+		final List<String> names = SyntheticFacelets.growMappings(this.config, this.mappingsCount);
+		final Tag[] tags = SyntheticFacelets.generate(this.tagCount, this.attributesCount, names, 1);
+		this.wrappers = new JKTagWrapper[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			this.wrappers[i] = new JKTagWrapper(tags[i]);
+		}
+	}
+
+	@Benchmark
+	public void findTagMapping(final Blackhole blackhole) {
+		for (final JKTagWrapper wrapper : this.wrappers) {
+			blackhole.consume(this.config.findTagMapping(wrapper));
+		}
+	}
+}
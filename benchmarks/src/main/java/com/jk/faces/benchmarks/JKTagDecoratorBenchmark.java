@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.view.facelets.Tag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.jk.faces.config.JKFacesConfigurations;
+import com.jk.faces.decorators.JKTagDecorator;
+
+/**
+ * Decorates a whole synthetic page per operation, with an empty decoration
+ * cache (first compilation), and with a filled one (as on facelets
+ * recompilation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JKTagDecoratorBenchmark {
+
+	@Param({ "100", "1000" })
+	int tagCount;
+
+	@Param({ "100", "1000", "5000" })
+	int mappingsCount;
+
+	@Param({ "2", "8" })
+	int attributesCount;
+
+	private Tag[] tags;
+
+	private JKTagDecorator coldDecorator;
+
+	private JKTagDecorator warmDecorator;
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		SyntheticFacelets.silenceLogging();
+		// each trial runs in its own fork, so growing the singleton is safe
+		final List<String> names = SyntheticFacelets.growMappings(JKFacesConfigurations.getInstance(), this.mappingsCount);
+		this.tags = SyntheticFacelets.generate(this.tagCount, this.attributesCount, names, 1);
+		this.coldDecorator = new JKTagDecorator();
+		this.warmDecorator = new JKTagDecorator();
+	}
+
+	@Benchmark
+	public void decorateCold(final Blackhole blackhole) {
+		this.coldDecorator.getCache().clear();
+		for (final Tag tag : this.tags) {
+			blackhole.consume(this.coldDecorator.decorate(tag));
+		}
+	}
+
+	@Benchmark
+	public void decorateWarm(final Blackhole blackhole) {
+		for (final Tag tag : this.tags) {
+			blackhole.consume(this.warmDecorator.decorate(tag));
+		}
+	}
+}
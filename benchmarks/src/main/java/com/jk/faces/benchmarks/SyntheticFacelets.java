@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.view.Location;
+import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
+
+import com.jk.faces.config.JKFacesConfigurations;
+import com.jk.faces.config.JKTagMapping;
+import com.sun.faces.facelets.tag.TagAttributeImpl;
+import com.sun.faces.facelets.tag.TagAttributesImpl;
+
+/**
+ * <B>SyntheticFacelets</B> generates streams of facelets tags shaped like real
+ * pages : plain html (mapped and not mapped), tags with links, JSF tags with
+ * namespaces and a single html root, and grows the mapping table with
+ * synthetic tag libraries.
+ */
+public class SyntheticFacelets {
+
+	/** The Constant LIBRARY_URL. */
+	static final String LIBRARY_URL = "http://jalalkiswani.com/benchmarks/lib";
+
+	/** The Constant TAGS_PER_LIBRARY. */
+	static final int TAGS_PER_LIBRARY = 50;
+
+	/** keep reference, so the level is not lost when the logger collected. */
+	private static final Logger JK_LOGGER = Logger.getLogger("com.jk");
+
+	/** The Constant PLAIN_TAGS. */
+	private static final String[] PLAIN_TAGS = { "div", "span", "table", "tr", "td", "ul", "li", "label", "p", "section" };
+
+	/** The Constant LINK_TAGS. */
+	private static final String[] LINK_TAGS = { "a", "img", "script", "link" };
+
+	/** The Constant JSF_TAGS. */
+	private static final String[] JSF_TAGS = { "ui:composition", "ui:define", "h:outputText", "p:panel", "f:facet" };
+
+	/** The Constant JSF_NAMESPACES. */
+	private static final String[] JSF_NAMESPACES = { "http://java.sun.com/jsf/facelets", "http://java.sun.com/jsf/facelets",
+			"http://java.sun.com/jsf/html", "http://primefaces.org/ui", "http://java.sun.com/jsf/core" };
+
+	/**
+	 * Silence the INFO logging of jk-faces, so the benchmarks measure the
+	 * decoration not the console.
+	 */
+	public static void silenceLogging() {
+		JK_LOGGER.setLevel(Level.WARNING);
+	}
+
+	/**
+	 * Grow the mapping table of the configurations to the given size, using
+	 * synthetic tag libraries.
+	 *
+	 * @param config
+	 *            the config
+	 * @param mappingsCount
+	 *            the mappings count
+	 * @return the source q names of the synthetic mappings
+	 */
+	public static List<String> growMappings(final JKFacesConfigurations config, final int mappingsCount) {
+		final int missing = mappingsCount - config.getTagMapping().size();
+		final Map<String, List<String>> libraries = new LinkedHashMap<>();
+		for (int i = 0; i < missing; i++) {
+			final String url = String.format("%s%03d", LIBRARY_URL, i / TAGS_PER_LIBRARY);
+			List<String> tags = libraries.get(url);
+			if (tags == null) {
+				tags = new ArrayList<>();
+				libraries.put(url, tags);
+			}
+			tags.add("tag" + i);
+		}
+		if (!libraries.isEmpty()) {
+			config.loadTagLibraries(libraries);
+		}
+		final List<String> sourceNames = new ArrayList<>();
+		for (final JKTagMapping mapping : config.getTagMapping()) {
+			sourceNames.add(mapping.getSourceQName());
+		}
+		return sourceNames;
+	}
+
+	/**
+	 * Generate tags stream.
+	 *
+	 * @param tagsCount
+	 *            the tags count
+	 * @param attributesCount
+	 *            the attributes count of each tag
+	 * @param mappedNames
+	 *            source q names of the mappings
+	 * @param seed
+	 *            the random seed
+	 * @return the tags
+	 */
+	public static Tag[] generate(final int tagsCount, final int attributesCount, final List<String> mappedNames, final long seed) {
+		final Random random = new Random(seed);
+		final Tag[] tags = new Tag[tagsCount];
+		final String path = "/synthetic/page" + seed + ".xhtml";
+		for (int i = 0; i < tagsCount; i++) {
+			final Location location = new Location(path, i + 1, 1);
+			if (i == 0) {
+				tags[i] = createTag(location, "", "html", attributes(location, attributesCount, random, null));
+				continue;
+			}
+			final int kind = random.nextInt(10);
+			if (kind < 4) {
+				// mapped html
+				final String name = mappedNames.get(random.nextInt(mappedNames.size()));
+				tags[i] = createTag(location, "", name, attributes(location, attributesCount, random, null));
+			} else if (kind < 6) {
+				final String name = LINK_TAGS[random.nextInt(LINK_TAGS.length)];
+				final String link = random.nextBoolean() ? "/resources/file" + random.nextInt(100) : "http://cdn.example.com/f.js";
+				tags[i] = createTag(location, "", name, attributes(location, attributesCount, random, link));
+			} else if (kind < 8) {
+				final int index = random.nextInt(JSF_TAGS.length);
+				tags[i] = createTag(location, JSF_NAMESPACES[index], JSF_TAGS[index], attributes(location, attributesCount, random, null));
+			} else {
+				final String name = PLAIN_TAGS[random.nextInt(PLAIN_TAGS.length)];
+				tags[i] = createTag(location, "", name, attributes(location, attributesCount, random, null));
+			}
+		}
+		return tags;
+	}
+
+	/**
+	 * Creates the attributes.
+	 */
+	private static TagAttribute[] attributes(final Location location, final int count, final Random random, final String link) {
+		final TagAttribute[] attributes = new TagAttribute[count];
+		for (int i = 0; i < count; i++) {
+			final String name;
+			final String value;
+			if (i == 0 && link != null) {
+				name = random.nextBoolean() ? "href" : "src";
+				value = link;
+			} else if (i == 0) {
+				name = "id";
+				value = "c" + random.nextInt(100000);
+			} else if (i == 1) {
+				name = "styleClass";
+				value = "col-" + random.nextInt(12);
+			} else {
+				name = "attr" + i;
+				value = "#{bean.value" + random.nextInt(20) + "}";
+			}
+			attributes[i] = new TagAttributeImpl(location, "", name, name, value);
+		}
+		return attributes;
+	}
+
+	/**
+	 * Creates the tag.
+	 */
+	private static Tag createTag(final Location location, final String namespace, final String qName, final TagAttribute[] attributes) {
+		final int index = qName.indexOf(':');
+		final String localName = index == -1 ? qName : qName.substring(index + 1);
+		return new Tag(location, namespace, localName, qName, new TagAttributesImpl(attributes));
+	}
+}
@@ -16,6 +16,7 @@
 package com.jk.faces.components.layouts;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.faces.component.FacesComponent;
@@ -44,23 +45,52 @@ public class UIBorderLayout extends UILayout {
 	/** The Constant COMPONENT_TYPE. */
 	public static final String COMPONENT_TYPE = "jk.layout.border";
 
-	/** The north. */
-	private UIAbstractRegion north;
+	/** The Constant NORTH, index of the north region. */
+	private static final int NORTH = 0;
 
-	/** The south. */
-	private UIAbstractRegion south;
+	/** The Constant START. */
+	private static final int START = 1;
 
-	/** The center. */
-	private UIAbstractRegion center;
+	/** The Constant CENTER. */
+	private static final int CENTER = 2;
 
-	/** The start. */
-	private UIAbstractRegion start;
+	/** The Constant END. */
+	private static final int END = 3;
 
-	/** The end. */
-	private UIAbstractRegion end;
+	/** The Constant SOUTH. */
+	private static final int SOUTH = 4;
 
-	/** The colspan. */
-	private int colspan;
+	/**
+	 * Gets the index of the region kind of the component.
+	 *
+	 * @param component
+	 *            the component
+	 * @return the region index, or -1 if it is not a region
+	 */
+	private static int getRegionIndex(final UIComponent component) {
+		if (component instanceof UINorth) {
+			return NORTH;
+		}
+		if (component instanceof UIStart) {
+			return START;
+		}
+		if (component instanceof UICenter) {
+			return CENTER;
+		}
+		if (component instanceof UIEnd) {
+			return END;
+		}
+		if (component instanceof UISouth) {
+			return SOUTH;
+		}
+		return -1;
+	}
+
+	/** The regions indexed by kind, resolved once per children structure. */
+	private final UIAbstractRegion[] regions = new UIAbstractRegion[5];
+
+	/** The children the regions have been resolved from. */
+	private UIComponent[] resolvedChildren;
 
 	/**
 	 * this method is responsible for rendering {@link UIBorderLayout} in form
@@ -68,7 +98,8 @@ public class UIBorderLayout extends UILayout {
 	 * <P/>
 	 * It render {@link UIBorderLayout} child components in five regions
 	 * {@link UIStart}, {@link UIEnd}, {@link UICenter}, {@link UINorth} and
-	 * {@link UISouth}
+	 * {@link UISouth}, the colspan of the full span regions is the number of
+	 * the rendered middle regions.
 	 *
 	 * @param context
 	 *            instance of {@link FacesContext}
@@ -86,34 +117,38 @@ public class UIBorderLayout extends UILayout {
 		}
 		encodeBegin(context);
 		fetchRegions();
+		final boolean[] rendered = new boolean[this.regions.length];
+		int colspan = 0;
+		for (int i = 0; i < this.regions.length; i++) {
+			rendered[i] = this.regions[i] != null && this.regions[i].isRendered();
+			if (rendered[i] && i >= START && i <= END) {
+				colspan++;
+			}
+		}
 		final ResponseWriter writer = context.getResponseWriter();
 
 		writer.startElement("table", null);
 		// north
-		if (this.north != null && this.north.isRendered()) {
+		if (rendered[NORTH]) {
 			writer.startElement("tr", null);
-			writerRegionCell(context, this.north);
+			writerRegionCell(context, this.regions[NORTH], colspan);
 			writer.endElement("tr");
 		}
 		// to insure that there is not empty row
-		if (this.colspan > 0) {
+		if (colspan > 0) {
 			writer.startElement("tr", null);
-			if (this.start != null && this.start.isRendered()) {
-				writerRegionCell(context, this.start);
-			}
-			if (this.center != null && this.center.isRendered()) {
-				writerRegionCell(context, this.center);
-			}
-			if (this.end != null && this.end.isRendered()) {
-				writerRegionCell(context, this.end);
+			for (int i = START; i <= END; i++) {
+				if (rendered[i]) {
+					writerRegionCell(context, this.regions[i], colspan);
+				}
 			}
 			writer.endElement("tr");
 		}
 
 		// south
-		if (this.south != null) {
+		if (rendered[SOUTH]) {
 			writer.startElement("tr", null);
-			writerRegionCell(context, this.south);
+			writerRegionCell(context, this.regions[SOUTH], colspan);
 			writer.endElement("tr");
 		}
 
@@ -121,30 +156,28 @@ public class UIBorderLayout extends UILayout {
 	}
 
 	/**
-	 * Fetch the defined regions identified by BorderLayout.
+	 * Fetch the defined regions identified by BorderLayout, only if the
+	 * children have changed since the last fetch.
 	 */
 	private void fetchRegions() {
 		final List<UIComponent> childeren = getChildren();
-		for (final UIComponent uiComponent : childeren) {
-			if (uiComponent instanceof UINorth) {
-				this.north = (UIAbstractRegion) uiComponent;
-			}
-			if (uiComponent instanceof UISouth) {
-				this.south = (UIAbstractRegion) uiComponent;
-			}
-			if (uiComponent instanceof UICenter) {
-				this.center = (UIAbstractRegion) uiComponent;
-				this.colspan++;
+		if (this.resolvedChildren != null && this.resolvedChildren.length == childeren.size()) {
+			boolean same = true;
+			for (int i = 0; i < this.resolvedChildren.length && same; i++) {
+				same = this.resolvedChildren[i] == childeren.get(i);
 			}
-			if (uiComponent instanceof UIStart) {
-				this.start = (UIAbstractRegion) uiComponent;
-				this.colspan++;
+			if (same) {
+				return;
 			}
-			if (uiComponent instanceof UIEnd) {
-				this.end = (UIAbstractRegion) uiComponent;
-				this.colspan++;
+		}
+		Arrays.fill(this.regions, null);
+		for (final UIComponent uiComponent : childeren) {
+			final int index = getRegionIndex(uiComponent);
+			if (index != -1) {
+				this.regions[index] = (UIAbstractRegion) uiComponent;
 			}
 		}
+		this.resolvedChildren = childeren.toArray(new UIComponent[childeren.size()]);
 	}
 
 	/**
@@ -154,10 +187,12 @@ public class UIBorderLayout extends UILayout {
 	 *            the context
 	 * @param region
 	 *            the region
+	 * @param colspan
+	 *            the colspan of the full span regions
 	 * @throws IOException
 	 *             if an input/output error occurs during response writing
 	 */
-	private void writerRegionCell(final FacesContext context, final UIAbstractRegion region) throws IOException {
+	private void writerRegionCell(final FacesContext context, final UIAbstractRegion region, final int colspan) throws IOException {
 		final ResponseWriter writer = context.getResponseWriter();
 		writer.startElement("td", null);
 		// TODO : check me
@@ -165,7 +200,7 @@ public class UIBorderLayout extends UILayout {
 
 		// TODO : handle the styleclasss and class
 		if (region.isFullSpan()) {
-			writer.writeAttribute("colspan", this.colspan, null);
+			writer.writeAttribute("colspan", colspan, null);
 		}
 		if (region.isStretchWidth() && region.getWidth() == null) {
 			writer.writeAttribute("width", "100%", null);
@@ -16,9 +16,15 @@
 package com.jk.faces.components.layouts;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.faces.application.ProjectStage;
 import javax.faces.component.FacesComponent;
 import javax.faces.component.UIComponent;
 import javax.faces.component.html.HtmlOutputLabel;
@@ -45,6 +51,12 @@ import com.jk.faces.util.JSFUtil;
  * will be located in form label and field pair.
  * <P/>
  * Actions region is a region for layout an action components.
+ * <P/>
+ * The fields to render are compiled in a {@link RenderPlan} of child indices,
+ * ids and literal colspans, shared in the application by the view id and the
+ * client id of the layout. The tree rebuilt on each postback is bound to the
+ * plan with index lookups, the plan is recompiled only when the bound tree
+ * does not match it.
  *
  * @author Jalal H. Kiswani
  * @version 1.0
@@ -54,9 +66,314 @@ import com.jk.faces.util.JSFUtil;
 @FacesComponent(value = UIFormLayout.JK_LAYOUT_FORM_LAYOUT)
 public class UIFormLayout extends UILayout {
 
+	/**
+	 * The cells of the fields region to render in one encode, with their
+	 * colspans.
+	 */
+	static final class Cells {
+		private final List<UIComponent> components;
+		private int[] colspans;
+
+		/**
+		 * Instantiates new cells.
+		 *
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		Cells(final int capacity) {
+			this.components = new ArrayList<>(capacity);
+			this.colspans = new int[Math.max(capacity, 1)];
+		}
+
+		/**
+		 * Adds the component.
+		 *
+		 * @param component
+		 *            the component
+		 * @param colspan
+		 *            the literal colspan, or {@link RenderPlan#DYNAMIC}
+		 */
+		void add(final UIComponent component, final int colspan) {
+			if (this.components.size() == this.colspans.length) {
+				this.colspans = Arrays.copyOf(this.colspans, this.colspans.length * 2);
+			}
+			this.colspans[this.components.size()] = colspan;
+			this.components.add(component);
+		}
+
+		/**
+		 * Gets the colspan of the component at the given index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the colspan
+		 */
+		int getColspan(final int index) {
+			final int colspan = this.colspans[index];
+			return colspan == RenderPlan.DYNAMIC ? JSFUtil.getIntAttribute(this.components.get(index), TagAttributeConstants.COLSPAN, 1) : colspan;
+		}
+
+		/**
+		 * Gets the components to render.
+		 *
+		 * @return the components
+		 */
+		List<UIComponent> getComponents() {
+			return this.components;
+		}
+	}
+
+	/**
+	 * The compiled fields of a form layout: the ids of the fields, the explode
+	 * flags, the literal colspans and the label targets as child index paths.
+	 * It holds no component instances, so it is shared by the trees of all the
+	 * requests and bound to each one with <code>getChildren().get(i)</code>
+	 * lookups; the ids are compared on binding, so a tree that does not match
+	 * the plan is detected and the plan is recompiled from it.
+	 */
+	static final class RenderPlan {
+		/** Explode flag or colspan bound to EL, evaluated on each render. */
+		static final int DYNAMIC = -1;
+
+		private final String[] fieldIds;
+		private final int[] explode;
+		private final String[][] explodedIds;
+		private final int[][] colspans;
+		private final boolean[] labels;
+		private final String[] labelFors;
+		private final String[] labelTargetIds;
+		private final boolean[] labelInFields;
+		private final int[][] labelPaths;
+
+		/**
+		 * Compile the plan of the current tree.
+		 *
+		 * @param context
+		 *            the context
+		 * @param layout
+		 *            the layout
+		 * @param fieldsRegion
+		 *            the fields region
+		 */
+		RenderPlan(final FacesContext context, final UIFormLayout layout, final UIFields fieldsRegion) {
+			final List<UIComponent> fields = fieldsRegion.getChildren();
+			final int size = fields.size();
+			this.fieldIds = new String[size];
+			this.explode = new int[size];
+			this.explodedIds = new String[size][];
+			this.colspans = new int[size][];
+			this.labels = new boolean[size];
+			this.labelFors = new String[size];
+			this.labelTargetIds = new String[size];
+			this.labelInFields = new boolean[size];
+			this.labelPaths = new int[size][];
+			for (int i = 0; i < size; i++) {
+				final UIComponent field = fields.get(i);
+				this.fieldIds[i] = field.getId();
+				if (field instanceof OutputLabel) {
+					this.labels[i] = true;
+					this.labelFors[i] = ((HtmlOutputLabel) field).getFor();
+					final UIComponent target = this.labelFors[i] == null ? null : JSFUtil.findComponent(layout, this.labelFors[i]);
+					if (target != null) {
+						this.labelTargetIds[i] = target.getId();
+						final UIComponent root = getRoot(target);
+						// the fields region is a root if it has been created by
+						// fetchRegions
+						this.labelInFields[i] = root == fieldsRegion;
+						if (root == context.getViewRoot() || root == fieldsRegion) {
+							this.labelPaths[i] = getPath(root, target);
+						}
+					}
+				}
+				if (field.getValueExpression(TagAttributeConstants.ATTRIBUTE_EXPLODE_CHILDS) != null) {
+					this.explode[i] = DYNAMIC;
+				} else if (JSFUtil.getBooleanAttribute(field, TagAttributeConstants.ATTRIBUTE_EXPLODE_CHILDS, false)) {
+					this.explode[i] = 1;
+					final List<UIComponent> children = field.getChildren();
+					this.explodedIds[i] = new String[children.size()];
+					this.colspans[i] = new int[children.size()];
+					for (int j = 0; j < children.size(); j++) {
+						this.explodedIds[i][j] = children.get(j).getId();
+						this.colspans[i][j] = getColspan(children.get(j));
+					}
+				} else {
+					this.colspans[i] = new int[] { getColspan(field) };
+				}
+			}
+		}
+
+		/**
+		 * Bind the plan to the current tree, the rendered state of the labels
+		 * is set from their targets.
+		 *
+		 * @param context
+		 *            the context
+		 * @param layout
+		 *            the layout
+		 * @param fieldsRegion
+		 *            the fields region
+		 * @return the cells to render, or null if the tree does not match the
+		 *         plan
+		 */
+		Cells bind(final FacesContext context, final UIFormLayout layout, final UIFields fieldsRegion) {
+			final List<UIComponent> fields = fieldsRegion.getChildren();
+			if (fields.size() != this.fieldIds.length) {
+				return null;
+			}
+			final Cells cells = new Cells(fields.size());
+			for (int i = 0; i < this.fieldIds.length; i++) {
+				final UIComponent field = fields.get(i);
+				if (!Objects.equals(field.getId(), this.fieldIds[i]) || field instanceof OutputLabel != this.labels[i]) {
+					return null;
+				}
+				if (this.labels[i]) {
+					if (!Objects.equals(((HtmlOutputLabel) field).getFor(), this.labelFors[i])) {
+						return null;
+					}
+					final UIComponent target;
+					if (this.labelTargetIds[i] == null) {
+						// a missing target could have been added since
+						if (this.labelFors[i] != null && JSFUtil.findComponent(layout, this.labelFors[i]) != null) {
+							return null;
+						}
+						target = null;
+					} else {
+						target = getLabelTarget(context, layout, fieldsRegion, i);
+						if (target == null) {
+							return null;
+						}
+					}
+					if (target != null) {
+						field.setRendered(target.isRendered());
+					}
+				}
+				if (!field.isRendered()) {
+					continue;
+				}
+				if (this.explode[i] == DYNAMIC) {
+					if (JSFUtil.getBooleanAttribute(field, TagAttributeConstants.ATTRIBUTE_EXPLODE_CHILDS, false)) {
+						for (final UIComponent child : field.getChildren()) {
+							cells.add(child, DYNAMIC);
+						}
+					} else {
+						cells.add(field, DYNAMIC);
+					}
+				} else if (this.explode[i] == 1) {
+					final List<UIComponent> children = field.getChildren();
+					if (children.size() != this.explodedIds[i].length) {
+						return null;
+					}
+					for (int j = 0; j < this.explodedIds[i].length; j++) {
+						final UIComponent child = children.get(j);
+						if (!Objects.equals(child.getId(), this.explodedIds[i][j])) {
+							return null;
+						}
+						cells.add(child, this.colspans[i][j]);
+					}
+				} else {
+					cells.add(field, this.colspans[i][0]);
+				}
+			}
+			return cells;
+		}
+
+		/**
+		 * Gets the target of the label at the given index by its path, or by
+		 * its for expression if reached through a facet.
+		 *
+		 * @param context
+		 *            the context
+		 * @param layout
+		 *            the layout
+		 * @param fieldsRegion
+		 *            the fields region
+		 * @param index
+		 *            the index
+		 * @return the target, or null if the tree does not match the plan
+		 */
+		private UIComponent getLabelTarget(final FacesContext context, final UIFormLayout layout, final UIFields fieldsRegion, final int index) {
+			final int[] path = this.labelPaths[index];
+			if (path == null) {
+				return JSFUtil.findComponent(layout, this.labelFors[index]);
+			}
+			UIComponent component = this.labelInFields[index] ? fieldsRegion : context.getViewRoot();
+			for (final int childIndex : path) {
+				if (childIndex >= component.getChildCount()) {
+					return null;
+				}
+				component = component.getChildren().get(childIndex);
+			}
+			return this.labelTargetIds[index].equals(component.getId()) ? component : null;
+		}
+
+		/**
+		 * Gets the literal colspan of the component.
+		 *
+		 * @param component
+		 *            the component
+		 * @return the colspan, or {@link #DYNAMIC} if bound to EL
+		 */
+		private static int getColspan(final UIComponent component) {
+			return component.getValueExpression(TagAttributeConstants.COLSPAN) != null ? DYNAMIC
+					: JSFUtil.getIntAttribute(component, TagAttributeConstants.COLSPAN, 1);
+		}
+
+		/**
+		 * Gets the child indices from the root to the component.
+		 *
+		 * @param root
+		 *            the root
+		 * @param component
+		 *            the component
+		 * @return the path, or null if the component is reached through a facet
+		 */
+		private static int[] getPath(final UIComponent root, final UIComponent component) {
+			final List<Integer> indices = new ArrayList<>();
+			UIComponent current = component;
+			while (current != root) {
+				final UIComponent parent = current.getParent();
+				final int index = parent.getChildren().indexOf(current);
+				if (index == -1) {
+					return null;
+				}
+				indices.add(index);
+				current = parent;
+			}
+			final int[] path = new int[indices.size()];
+			for (int i = 0; i < path.length; i++) {
+				path[i] = indices.get(path.length - 1 - i);
+			}
+			return path;
+		}
+
+		/**
+		 * Gets the root of the tree the component is attached to.
+		 *
+		 * @param component
+		 *            the component
+		 * @return the root
+		 */
+		private static UIComponent getRoot(final UIComponent component) {
+			UIComponent root = component;
+			while (root.getParent() != null) {
+				root = root.getParent();
+			}
+			return root;
+		}
+	}
+
 	/** The Constant JK_LAYOUT_FORM_LAYOUT. */
 	public static final String JK_LAYOUT_FORM_LAYOUT = "jk.layout.formLayout";
 
+	/** The application attribute of the render plans. */
+	static final String RENDER_PLANS = UIFormLayout.class.getName().concat(".renderPlans");
+
+	/**
+	 * The max number of shared plans, layouts inside iterating components have
+	 * a client id per row.
+	 */
+	private static final int MAX_RENDER_PLANS = 10000;
+
 	/** The cols. */
 	private int cols = 1;
 
@@ -112,7 +429,7 @@ public class UIFormLayout extends UILayout {
 		if (JSFUtil.getBooleanAttribute(this, TagAttributeConstants.ADD_LABELS, true) == true) {
 			cols *= 2;
 		}
-		fetchRegions(context);
+		final Cells cells = getCells(context);
 		final ResponseWriter writer = context.getResponseWriter();
 		writer.startElement("table", null);
 		// getWrapper().writeAttribute("id", getClientId());
@@ -127,7 +444,7 @@ public class UIFormLayout extends UILayout {
 			this.logger.warning("No FieldRegion found for UIFormLayout : " + getId());
 			return;
 		}
-		final List<UIComponent> components = getComponentsToRender();
+		final List<UIComponent> components = cells.getComponents();
 		// logger.info("Rendiring formlayout Components.size() " +
 		// components.size());
 
@@ -136,8 +453,8 @@ public class UIFormLayout extends UILayout {
 			// " Cols " + cols);
 			writer.startElement("tr", null);
 			for (int j = 0; j < cols && childsComponentIndex < components.size(); j++) {
+				final int colspan = cells.getColspan(childsComponentIndex);
 				final UIComponent uiComponent = components.get(childsComponentIndex++);
-				final int colspan = JSFUtil.getIntegerAttribute(uiComponent, TagAttributeConstants.COLSPAN, 1);
 				writer.startElement("td", null);
 				if (colspan > 1) {
 					JSFUtil.writeAttribue(uiComponent, TagAttributeConstants.COLSPAN, null, colspan);
@@ -161,7 +478,7 @@ public class UIFormLayout extends UILayout {
 	 */
 	private void fetchRegions(final FacesContext context) {
 		final List<UIComponent> children = getChildren();
-		final List<UIComponent> componentsOutOfFieldsTRegion = new Vector();
+		final List<UIComponent> componentsOutOfFieldsTRegion = new ArrayList<>();
 		for (final UIComponent uiComponent : children) {
 			if (uiComponent instanceof UIFields) {
 				this.fieldsRegion = (UIFields) uiComponent;
@@ -197,26 +514,46 @@ public class UIFormLayout extends UILayout {
 	}
 
 	/**
-	 * Gets the components to render.
+	 * Gets the cells to render, binds the tree to the shared plan of the
+	 * layout, the plan is recompiled if not found or not matching the tree.
+	 * In development stage the plan is compiled on each render, since the
+	 * literal attributes of the views could be changed.
 	 *
-	 * @return the components to render
+	 * @param context
+	 *            the context
+	 * @return the cells, or null if there is no fields region
 	 */
-	private List<UIComponent> getComponentsToRender() {
-		final List<UIComponent> children = this.fieldsRegion.getChildren();
-		final List<UIComponent> componentsToRender = new Vector();
-		for (final UIComponent uiComponent : children) {
-			if (uiComponent instanceof OutputLabel) {
-				uiComponent.setRendered(findComponent(((HtmlOutputLabel) uiComponent).getFor()).isRendered());
-			}
-			if (uiComponent.isRendered()) {
-				if (JSFUtil.getBooleanAttribute(uiComponent, TagAttributeConstants.ATTRIBUTE_EXPLODE_CHILDS, false)) {
-					componentsToRender.addAll(uiComponent.getChildren());
-				} else {
-					componentsToRender.add(uiComponent);
+	@SuppressWarnings("unchecked")
+	private Cells getCells(final FacesContext context) {
+		fetchRegions(context);
+		if (this.fieldsRegion == null) {
+			return null;
+		}
+		if (context.isProjectStage(ProjectStage.Development)) {
+			return new RenderPlan(context, this, this.fieldsRegion).bind(context, this, this.fieldsRegion);
+		}
+		final Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+		ConcurrentMap<String, RenderPlan> plans = (ConcurrentMap<String, RenderPlan>) applicationMap.get(RENDER_PLANS);
+		if (plans == null) {
+			synchronized (UIFormLayout.class) {
+				plans = (ConcurrentMap<String, RenderPlan>) applicationMap.get(RENDER_PLANS);
+				if (plans == null) {
+					plans = new ConcurrentHashMap<>();
+					applicationMap.put(RENDER_PLANS, plans);
 				}
 			}
 		}
-		return componentsToRender;
+		final String key = context.getViewRoot().getViewId().concat(":").concat(getClientId(context));
+		RenderPlan plan = plans.get(key);
+		Cells cells = plan == null ? null : plan.bind(context, this, this.fieldsRegion);
+		if (cells == null) {
+			plan = new RenderPlan(context, this, this.fieldsRegion);
+			cells = plan.bind(context, this, this.fieldsRegion);
+			if (plans.size() < MAX_RENDER_PLANS || plans.containsKey(key)) {
+				plans.put(key, plan);
+			}
+		}
+		return cells;
 	}
 
 	/**
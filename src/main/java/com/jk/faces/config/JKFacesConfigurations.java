@@ -15,10 +15,27 @@
  */
 package com.jk.faces.config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -26,6 +43,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.jboss.logging.Logger;
 
@@ -47,22 +65,247 @@ import com.sun.faces.facelets.tag.AbstractTagLibrary;
 public class JKFacesConfigurations {
 	private static final String META_INF_JK_FACES_CONFIG_XML = "/META-INF/jk-faces-config.xml";
 
+	/**
+	 * Immutable snapshot of the namespaces with its lookup tables, replaced as
+	 * a whole when a namespace is created.
+	 */
+	static final class Namespaces {
+		final List<JKNamespace> list;
+		final Map<String, JKNamespace> byUrl = new HashMap<>();
+		final Map<String, JKNamespace> byLetter = new HashMap<>();
+
+		Namespaces(final List<JKNamespace> namespaces) {
+			this.list = Collections.unmodifiableList(new ArrayList<>(namespaces));
+			for (final JKNamespace namespace : this.list) {
+				// first one wins, same as the old linear search
+				if (!this.byUrl.containsKey(namespace.getUrl())) {
+					this.byUrl.put(namespace.getUrl(), namespace);
+				}
+				if (!this.byLetter.containsKey(namespace.getLetter())) {
+					this.byLetter.put(namespace.getLetter(), namespace);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the namespaces, the tag mappings and their
+	 * compiled index, published as a whole in a single volatile write, so
+	 * readers never see a new index with old mappings.
+	 */
+	static final class Snapshot {
+		final Namespaces namespaces;
+		final List<JKTagMapping> tagMapping;
+		final JKTagMappingIndex tagMappingIndex;
+
+		Snapshot(final Namespaces namespaces, final List<JKTagMapping> tagMapping) {
+			this(namespaces, Collections.unmodifiableList(new ArrayList<>(tagMapping)), null);
+		}
+
+		private Snapshot(final Namespaces namespaces, final List<JKTagMapping> tagMapping, final JKTagMappingIndex tagMappingIndex) {
+			this.namespaces = namespaces;
+			this.tagMapping = tagMapping;
+			this.tagMappingIndex = tagMappingIndex == null ? new JKTagMappingIndex(tagMapping) : tagMappingIndex;
+		}
+
+		/**
+		 * Copy of this snapshot with other namespaces, the mappings and the
+		 * index are shared.
+		 *
+		 * @param namespaces
+		 *            the namespaces
+		 * @return the snapshot
+		 */
+		Snapshot withNamespaces(final Namespaces namespaces) {
+			return new Snapshot(namespaces, this.tagMapping, this.tagMappingIndex);
+		}
+	}
+
 	static Logger logger = Logger.getLogger(JKFacesConfigurations.class.getName());
-	private static JKFacesConfigurations instance;
+	private static volatile JKFacesConfigurations instance;
+	private static volatile File overrideFile;
 
 	/**
-	 * Gets the single instance of JKFacesConfigurations.
+	 * Gets the single instance of JKFacesConfigurations, the configurations
+	 * are parsed and indexed exactly once, then published safely to all
+	 * threads.
 	 *
 	 * @return single instance of JKFacesConfigurations
 	 */
 	public static JKFacesConfigurations getInstance() {
-		if (instance == null) {
-			instance = new JKFacesConfigurations();
-			instance = JKXmlHandler.getInstance().parse(IOUtil.getInputStream(META_INF_JK_FACES_CONFIG_XML), JKFacesConfigurations.class,
-					JKNamespace.class, JKTagMapping.class);
+		JKFacesConfigurations result = instance;
+		if (result == null) {
+			synchronized (JKFacesConfigurations.class) {
+				result = instance;
+				if (result == null) {
+					result = load(ApplicationAssociate.getCurrentInstance());
+					instance = result;
+				}
+			}
+		}
+		return result;
+	}
 
+	/**
+	 * Gets the external config file used instead of
+	 * <code>/META-INF/jk-faces-config.xml</code>.
+	 *
+	 * @return the override file, or null if not set
+	 */
+	public static File getOverrideFile() {
+		return overrideFile;
+	}
+
+	/**
+	 * Checks if the configurations have been loaded already, waits for a
+	 * load in progress.
+	 *
+	 * @return true, if is loaded
+	 */
+	static synchronized boolean isLoaded() {
+		return instance != null;
+	}
+
+	/**
+	 * Parse and index new configurations, from the override file if set, or
+	 * from the binary cache if enabled and still valid.
+	 *
+	 * @param associate
+	 *            the JSF application associate to load the tag libraries
+	 *            from, could be null
+	 * @return the JK faces configurations
+	 */
+	static JKFacesConfigurations load(final ApplicationAssociate associate) {
+		final byte[] xml = readConfigurations();
+		// the container libraries are cached as well, so only use the cache
+		// when they are available
+		final JKFacesConfigurationsCache cache = associate == null ? null : JKFacesConfigurationsCache.create(xml);
+		if (cache != null) {
+			final JKFacesConfigurations cached = cache.read();
+			if (cached != null) {
+				return cached;
+			}
+		}
+		final JKFacesConfigurations config = JKXmlHandler.getInstance().parse(new ByteArrayInputStream(xml), JKFacesConfigurations.class,
+				JKNamespace.class, JKTagMapping.class, JKTagCondition.class);
+		config.initialize(associate);
+		if (cache != null) {
+			cache.write(config);
 		}
-		return instance;
+		return config;
+	}
+
+	/**
+	 * Read the configurations xml, from the override file if set.
+	 *
+	 * @return the xml content
+	 */
+	private static byte[] readConfigurations() {
+		final File file = overrideFile;
+		if (file != null) {
+			logger.info("loading configurations from : ".concat(file.getAbsolutePath()));
+		}
+		try (InputStream in = file == null ? IOUtil.getInputStream(META_INF_JK_FACES_CONFIG_XML) : new FileInputStream(file)) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} catch (final IOException e) {
+			throw new IllegalStateException("unable to load configurations from : "
+					.concat(file == null ? META_INF_JK_FACES_CONFIG_XML : file.getAbsolutePath()), e);
+		}
+	}
+
+	/**
+	 * Parse and index the configurations again, then swap the current
+	 * instance atomically, callers that already hold the old instance keep
+	 * using it consistently.
+	 *
+	 * @param associate
+	 *            the JSF application associate to load the tag libraries
+	 *            from, could be null
+	 * @return the new configurations
+	 */
+	public static JKFacesConfigurations reload(final ApplicationAssociate associate) {
+		final JKFacesConfigurations config = load(associate);
+		synchronized (JKFacesConfigurations.class) {
+			instance = config;
+		}
+		return config;
+	}
+
+	/**
+	 * Sets the external config file used instead of
+	 * <code>/META-INF/jk-faces-config.xml</code>, should be set before the
+	 * first call to {@link #getInstance()} or followed by
+	 * {@link #reload(ApplicationAssociate)}.
+	 *
+	 * @param file
+	 *            the new override file
+	 */
+	public static void setOverrideFile(final File file) {
+		overrideFile = file;
+	}
+
+	/**
+	 * Join the nullable fields of a fingerprint entry.
+	 *
+	 * @param fields
+	 *            the fields
+	 * @return the entry
+	 */
+	private static String toFingerprintEntry(final String... fields) {
+		final StringBuilder buf = new StringBuilder();
+		for (final String field : fields) {
+			buf.append(field).append('\0');
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Gets the tag names of the facelets tag libraries, the same way for the
+	 * libraries of the JSF container and the ones created at build time, so
+	 * both load the same mappings.
+	 *
+	 * @param libraries
+	 *            the libraries, other than {@link AbstractTagLibrary} are
+	 *            ignored
+	 * @return namespace url -> tag names, in the libraries order
+	 */
+	public static Map<String, Set<String>> getTagLibraries(final Collection<?> libraries) {
+		final Map<String, Set<String>> result = new LinkedHashMap<>();
+		for (final Object libObject : libraries) {
+			if (libObject instanceof AbstractTagLibrary) {
+				final AbstractTagLibrary library = (AbstractTagLibrary) libObject;
+				// load components using reflection
+				final Map<?, ?> map = ObjectUtil.getFieldValue(AbstractTagLibrary.class, library, "factories");
+				Set<String> tagNames = result.get(library.getNamespace());
+				if (tagNames == null) {
+					tagNames = new LinkedHashSet<>();
+					result.put(library.getNamespace(), tagNames);
+				}
+				for (final Object tagName : map.keySet()) {
+					tagNames.add(tagName.toString());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Update the digest with nullable string.
+	 *
+	 * @param digest
+	 *            the digest
+	 * @param value
+	 *            the value
+	 */
+	private static void update(final MessageDigest digest, final String value) {
+		digest.update(String.valueOf(value).getBytes(Charset.forName("UTF-8")));
+		digest.update((byte) 0);
 	}
 
 	// @XmlTransient
@@ -88,23 +331,55 @@ public class JKFacesConfigurations {
 		System.out.println("Done");
 	}
 
+	// JAXB only, the published values are read from the snapshot
 	@XmlElementWrapper(name = "name-spaces")
 	@XmlElement(name = "namespace")
 	List<JKNamespace> namespaces;
 
+	// JAXB only, the published values are read from the snapshot
 	@XmlElementWrapper(name = "tags-mapping")
 	@XmlElement(name = "tag")
 	List<JKTagMapping> tagMapping;
 
+	@XmlElementWrapper(name = "urlable-tags")
+	@XmlElement(name = "tag")
+	volatile List<String> urlableTags;
+
+	@XmlElementWrapper(name = "link-attributes")
+	@XmlElement(name = "attribute")
+	volatile List<String> linkAttributes;
+
+	@XmlElementWrapper(name = "html-tags")
+	@XmlElement(name = "tag")
+	volatile List<String> htmlTags;
+
+	@XmlTransient
+	private volatile JKTagClassification tagClassification;
+
+	@XmlTransient
+	private volatile Snapshot snapshot;
+
 	// JAXb callback
 	void afterUnmarshal(final Unmarshaller u, final Object parent) {
-		loadAllNamesSpacesFromJsfContainer();
-		Collections.sort(this.tagMapping);
-		System.err.println("---------------------------------------------");
-		logger.info("All tags mappings:");
-		System.err.println("---------------------------------------------");
-		for (final JKTagMapping mapping : this.tagMapping) {
-			logger.info(ObjectUtil.toString(mapping));
+		publish(createSnapshot());
+	}
+
+	/**
+	 * Load the tag libraries from the JSF container, then sort and index the
+	 * mappings.
+	 *
+	 * @param associate
+	 *            the associate
+	 */
+	void initialize(final ApplicationAssociate associate) {
+		loadAllNamesSpacesFromJsfContainer(associate);
+		if (logger.isInfoEnabled()) {
+			System.err.println("---------------------------------------------");
+			logger.info("All tags mappings:");
+			System.err.println("---------------------------------------------");
+			for (final JKTagMapping mapping : getTagMapping()) {
+				logger.info(ObjectUtil.toString(mapping));
+			}
 		}
 	}
 
@@ -118,30 +393,83 @@ public class JKFacesConfigurations {
 	 * @return the tag mapping
 	 */
 	public JKTagMapping findTagMapping(final JKTagWrapper wrapper) {
-		// Add caching
-		logger.info("Find mapping to tag ".concat(wrapper.getqName()));
-		for (final JKTagMapping mapping : this.tagMapping) {
-			if (mapping.getSourceQName().equals(wrapper.getqName())) {
-				if (mapping.getAttributeName() == null) {
-					return mapping;
-				} else {
-					final String value = wrapper.getAttributeValue(mapping.getAttributeName());
-					if (value != null && value.equals(mapping.getAttributeValue())) {
-						return mapping;
-					}
-				}
-			}
+		if (logger.isInfoEnabled()) {
+			logger.info("Find mapping to tag ".concat(wrapper.getqName()));
 		}
-		return null;
+		return getTagMappingIndex().find(wrapper);
 	}
 
 	public JKTagMapping findTagMapping(final String tagName) {
-		for (final JKTagMapping mapping : this.tagMapping) {
-			if (mapping.getSourceQName().equals(tagName)) {
-				return mapping;
+		return getTagMappingIndex().find(tagName);
+	}
+
+	/**
+	 * Calculate the fingerprint of everything the decoration depends on, the
+	 * namespaces, the tag mappings (including the ones loaded from the tag
+	 * libraries) and the tags classification lists. Used to detect facelets
+	 * pre-decorated with a different mappings set than the runtime one.
+	 * <P/>
+	 * The mappings are hashed as they are resolved, the mappings of each
+	 * source tag in their lookup order, and the namespaces resolved by each
+	 * url and letter. So the fingerprint changes whenever a tag could be
+	 * decorated differently, even if only the libraries loading order
+	 * differs, but not for differences that could not change the decoration
+	 * (e.g. the order of unrelated libraries).
+	 *
+	 * @return the fingerprint
+	 */
+	public String getDecorationFingerprint() {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			final Snapshot snapshot = getSnapshot();
+			for (final String url : new TreeSet<>(snapshot.namespaces.byUrl.keySet())) {
+				update(digest, toFingerprintEntry(url, snapshot.namespaces.byUrl.get(url).getPrefix()));
+			}
+			update(digest, null);
+			for (final String letter : new TreeSet<>(snapshot.namespaces.byLetter.keySet())) {
+				update(digest, toFingerprintEntry(letter, snapshot.namespaces.byLetter.get(letter).getUrl()));
+			}
+			update(digest, null);
+			// source tag -> its mappings in the lookup order
+			final Map<String, List<String>> mappings = new TreeMap<>();
+			for (final JKTagMapping mapping : snapshot.tagMapping) {
+				final List<String> fields = new ArrayList<>();
+				fields.add(mapping.getTargetQName());
+				fields.add(mapping.getAttributeName());
+				fields.add(mapping.getAttributeValue());
+				fields.add(mapping.getNamespace() == null ? null : mapping.getNamespace().getUrl());
+				for (final JKTagCondition condition : mapping.getConditions()) {
+					fields.add(String.valueOf(condition.getPresent()));
+					fields.add(condition.getAttributePrefix());
+					fields.add(condition.getAttributeName());
+					fields.add(condition.getAttributeValue());
+				}
+				final String source = String.valueOf(mapping.getSourceQName());
+				List<String> entries = mappings.get(source);
+				if (entries == null) {
+					entries = new ArrayList<>();
+					mappings.put(source, entries);
+				}
+				entries.add(toFingerprintEntry(fields.toArray(new String[fields.size()])));
 			}
+			for (final Entry<String, List<String>> entry : mappings.entrySet()) {
+				update(digest, entry.getKey());
+				for (final String mapping : entry.getValue()) {
+					update(digest, mapping);
+				}
+				update(digest, null);
+			}
+			update(digest, String.valueOf(getUrlableTags()));
+			update(digest, String.valueOf(getLinkAttributes()));
+			update(digest, String.valueOf(getHtmlTags()));
+			final StringBuilder buf = new StringBuilder();
+			for (final byte b : digest.digest()) {
+				buf.append(String.format("%02x", b));
+			}
+			return buf.toString();
+		} catch (final Exception e) {
+			throw new IllegalStateException("unable to calculate decoration fingerprint", e);
 		}
-		return null;
 	}
 
 	/**
@@ -152,12 +480,7 @@ public class JKFacesConfigurations {
 	 * @return the namespace by letter
 	 */
 	public JKNamespace getNamespaceByLetter(final String namespaceLetter) {
-		for (final JKNamespace namespace : this.namespaces) {
-			if (namespace.getLetter().equals(namespaceLetter)) {
-				return namespace;
-			}
-		}
-		return null;
+		return getNamespacesSnapshot().byLetter.get(namespaceLetter);
 	}
 
 	/**
@@ -168,20 +491,26 @@ public class JKFacesConfigurations {
 	 * @return the name space by url
 	 */
 	public JKNamespace getNameSpaceByUrl(final String url, final boolean create) {
-		logger.info("getNameSpaceByUrl :".concat(url));
-		for (final JKNamespace namespace : this.namespaces) {
-			if (namespace.getUrl().equals(url)) {
-				return namespace;
-			}
+		if (logger.isInfoEnabled()) {
+			logger.info("getNameSpaceByUrl :".concat(url));
 		}
-		// if not found , add?
-		if (create) {
-			logger.info("not found , create namespace ");
-			final JKNamespace namespace = new JKNamespace(url);
-			this.namespaces.add(namespace);
+		final JKNamespace namespace = getNamespacesSnapshot().byUrl.get(url);
+		if (namespace != null || !create) {
 			return namespace;
 		}
-		return null;
+		// if not found , add (copy on write)
+		synchronized (this) {
+			final Snapshot current = getSnapshot();
+			JKNamespace created = current.namespaces.byUrl.get(url);
+			if (created == null) {
+				logger.info("not found , create namespace ");
+				created = new JKNamespace(url);
+				final List<JKNamespace> copy = new ArrayList<>(current.namespaces.list);
+				copy.add(created);
+				publish(current.withNamespaces(new Namespaces(copy)));
+			}
+			return created;
+		}
 	}
 
 	/**
@@ -190,7 +519,84 @@ public class JKFacesConfigurations {
 	 * @return the namespaces
 	 */
 	public List<JKNamespace> getNamespaces() {
-		return this.namespaces;
+		return getNamespacesSnapshot().list;
+	}
+
+	/**
+	 * Gets the current namespaces snapshot.
+	 *
+	 * @return the namespaces snapshot
+	 */
+	private Namespaces getNamespacesSnapshot() {
+		return getSnapshot().namespaces;
+	}
+
+	/**
+	 * Gets the current snapshot, creates it from the JAXB fields if not
+	 * published yet.
+	 *
+	 * @return the snapshot
+	 */
+	private Snapshot getSnapshot() {
+		Snapshot result = this.snapshot;
+		if (result == null) {
+			synchronized (this) {
+				result = this.snapshot;
+				if (result == null) {
+					result = createSnapshot();
+					publish(result);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates snapshot from the JAXB fields.
+	 *
+	 * @return the snapshot
+	 */
+	private Snapshot createSnapshot() {
+		return new Snapshot(new Namespaces(this.namespaces == null ? Collections.<JKNamespace> emptyList() : this.namespaces),
+				this.tagMapping == null ? Collections.<JKTagMapping> emptyList() : this.tagMapping);
+	}
+
+	/**
+	 * Gets the html root tags as configured, could be null.
+	 *
+	 * @return the html tags
+	 */
+	public List<String> getHtmlTags() {
+		return this.htmlTags;
+	}
+
+	/**
+	 * Gets the link attributes as configured, could be null.
+	 *
+	 * @return the link attributes
+	 */
+	public List<String> getLinkAttributes() {
+		return this.linkAttributes;
+	}
+
+	/**
+	 * Gets the tag classification, built from the configured urlable tags,
+	 * link attributes and html tags, or the defaults if not configured.
+	 *
+	 * @return the tag classification
+	 */
+	public JKTagClassification getTagClassification() {
+		JKTagClassification classification = this.tagClassification;
+		if (classification == null) {
+			synchronized (this) {
+				classification = this.tagClassification;
+				if (classification == null) {
+					classification = new JKTagClassification(this.urlableTags, this.linkAttributes, this.htmlTags);
+					this.tagClassification = classification;
+				}
+			}
+		}
+		return classification;
 	}
 
 	/**
@@ -199,49 +605,161 @@ public class JKFacesConfigurations {
 	 * @return the tag mapping
 	 */
 	public List<JKTagMapping> getTagMapping() {
-		return this.tagMapping;
+		return getSnapshot().tagMapping;
+	}
+
+	/**
+	 * Gets the urlable tags as configured, could be null.
+	 *
+	 * @return the urlable tags
+	 */
+	public List<String> getUrlableTags() {
+		return this.urlableTags;
+	}
+
+	/**
+	 * Gets the compiled tag mapping index, of the same snapshot of
+	 * {@link #getTagMapping()}.
+	 *
+	 * @return the tag mapping index
+	 */
+	public JKTagMappingIndex getTagMappingIndex() {
+		return getSnapshot().tagMappingIndex;
 	}
 
 	protected void loadAllNamesSpacesFromJsfContainer() {
+		loadAllNamesSpacesFromJsfContainer(ApplicationAssociate.getCurrentInstance());
+	}
+
+	protected void loadAllNamesSpacesFromJsfContainer(final ApplicationAssociate currentInstance) {
 		logger.info("loadAllNamesSpacesFromJsfContainer....");
-		// HashMap<String, Object> publicNameSpaces = new HashMap<>();
-		final ApplicationAssociate currentInstance = ApplicationAssociate.getCurrentInstance();
+		Map<String, Set<String>> libraries = Collections.emptyMap();
 		if (currentInstance != null) {
 			final Compiler instance = currentInstance.getCompiler();
 			logger.info("loading libraries from JSF compiler");
-			final List libraries = ObjectUtil.getFieldValue(Compiler.class, instance, "libraries");
-			for (final Object libObject : libraries) {
-				if (libObject instanceof AbstractTagLibrary) {
-					final AbstractTagLibrary library = (AbstractTagLibrary) libObject;
-					logger.info(String.format("fetching %s library", library.getNamespace()));
-					// load components using reflection
-					final Map map = ObjectUtil.getFieldValue(AbstractTagLibrary.class, library, "factories");
-					final JKNamespace namespace = getNameSpaceByUrl(library.getNamespace(), true);
-
-					final Set keySet = map.keySet();
-					for (final Object object : keySet) {
-						// add tag names
-						final String localName = object.toString();
-						final String qName = namespace.getLetter().concat(":").concat(localName);
-						// check if mapping already exists
-						if (findTagMapping(qName) == null) {
-							final JKTagMapping mapping = new JKTagMapping(localName, qName, namespace);
-							this.tagMapping.add(mapping);
-						}
-					}
-				}
+			final List<?> compilerLibraries = ObjectUtil.getFieldValue(Compiler.class, instance, "libraries");
+			libraries = getTagLibraries(compilerLibraries);
+		}
+		loadTagLibraries(libraries);
+	}
+
+	/**
+	 * Load tag libraries that are not registered in a JSF container (e.g.
+	 * during build-time pre-decoration), the mappings are sorted and
+	 * re-indexed after loading.
+	 *
+	 * @param libraries
+	 *            namespace url -> tag names
+	 */
+	public synchronized void loadTagLibraries(final Map<String, ? extends Collection<String>> libraries) {
+		final List<JKTagMapping> copy = new ArrayList<>(getTagMapping());
+		final Set<String> sourceNames = getSourceNames(copy);
+		for (final Entry<String, ? extends Collection<String>> library : libraries.entrySet()) {
+			logger.info(String.format("fetching %s library", library.getKey()));
+			addTagLibrary(library.getKey(), library.getValue(), copy, sourceNames);
+		}
+		publishTagMapping(copy);
+	}
+
+	/**
+	 * Sort the mappings, compile its index and publish both with the current
+	 * namespaces.
+	 *
+	 * @param mappings
+	 *            the mappings
+	 */
+	private synchronized void publishTagMapping(final List<JKTagMapping> mappings) {
+		final List<JKTagMapping> sorted = new ArrayList<>(mappings);
+		Collections.sort(sorted);
+		publish(new Snapshot(getNamespacesSnapshot(), sorted));
+	}
+
+	/**
+	 * Publish the snapshot in a single volatile write, the JAXB fields are
+	 * updated as well for marshalling.
+	 *
+	 * @param snapshot
+	 *            the snapshot
+	 */
+	private synchronized void publish(final Snapshot snapshot) {
+		this.namespaces = snapshot.namespaces.list;
+		this.tagMapping = snapshot.tagMapping;
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Adds auto mapping for every tag in the library.
+	 *
+	 * @param namespaceUrl
+	 *            the namespace url
+	 * @param tagNames
+	 *            the tag names
+	 * @param mappings
+	 *            the mappings to add to
+	 * @param sourceNames
+	 *            the source qNames of the current mappings
+	 */
+	private void addTagLibrary(final String namespaceUrl, final Collection<?> tagNames, final List<JKTagMapping> mappings,
+			final Set<String> sourceNames) {
+		final JKNamespace namespace = getNameSpaceByUrl(namespaceUrl, true);
+		for (final Object object : tagNames) {
+			// add tag names
+			final String localName = object.toString();
+			final String qName = namespace.getLetter().concat(":").concat(localName);
+			// check if mapping already exists
+			if (!sourceNames.contains(qName)) {
+				final JKTagMapping mapping = new JKTagMapping(localName, qName, namespace);
+				mappings.add(mapping);
+				sourceNames.add(localName);
 			}
 		}
 	}
 
+	/**
+	 * Gets the source qNames of the mappings.
+	 *
+	 * @param mappings
+	 *            the mappings
+	 * @return the source names
+	 */
+	private Set<String> getSourceNames(final List<JKTagMapping> mappings) {
+		final Set<String> sourceNames = new HashSet<>();
+		for (final JKTagMapping mapping : mappings) {
+			sourceNames.add(mapping.getSourceQName());
+		}
+		return sourceNames;
+	}
+
+	/**
+	 * Sets the html root tags.
+	 *
+	 * @param htmlTags
+	 *            the new html tags
+	 */
+	public synchronized void setHtmlTags(final List<String> htmlTags) {
+		this.htmlTags = htmlTags;
+		this.tagClassification = null;
+	}
+
+	/**
+	 * Sets the link attributes.
+	 *
+	 * @param linkAttributes
+	 *            the new link attributes
+	 */
+	public synchronized void setLinkAttributes(final List<String> linkAttributes) {
+		this.linkAttributes = linkAttributes;
+		this.tagClassification = null;
+	}
+
 	/**
 	 * Sets the namespaces.
 	 *
 	 * @param namespaces
 	 *            the new namespaces
 	 */
-	public void setNamespaces(final List<JKNamespace> namespaces) {
-		this.namespaces = namespaces;
+	public synchronized void setNamespaces(final List<JKNamespace> namespaces) {
+		publish(getSnapshot().withNamespaces(new Namespaces(namespaces)));
 	}
 
 	/**
@@ -250,8 +768,19 @@ public class JKFacesConfigurations {
 	 * @param tagMapping
 	 *            the new tag mapping
 	 */
-	public void setTagMapping(final List<JKTagMapping> tagMapping) {
-		this.tagMapping = tagMapping;
+	public synchronized void setTagMapping(final List<JKTagMapping> tagMapping) {
+		publish(new Snapshot(getNamespacesSnapshot(), tagMapping));
+	}
+
+	/**
+	 * Sets the urlable tags.
+	 *
+	 * @param urlableTags
+	 *            the new urlable tags
+	 */
+	public synchronized void setUrlableTags(final List<String> urlableTags) {
+		this.urlableTags = urlableTags;
+		this.tagClassification = null;
 	}
 
 }
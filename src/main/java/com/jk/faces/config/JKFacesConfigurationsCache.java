@@ -0,0 +1,459 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.context.FacesContext;
+import javax.servlet.ServletContext;
+
+/**
+ * <B>JKFacesConfigurationsCache</B> stores the fully resolved namespaces and
+ * tag mappings (including the ones loaded from the JSF container) in a compact
+ * binary file, so later starts skip the JAXB parsing and the container
+ * reflection.
+ * <P/>
+ * The file is generated on the first boot and validated against a fingerprint
+ * of the configurations xml, the JSF implementation version, the jars and
+ * tag libraries on the classpath and the tag libraries declared in the
+ * <code>javax.faces.FACELETS_LIBRARIES</code> context param, any mismatch or
+ * read error falls back to the normal loading.
+ * <P/>
+ * Enabled by the {@link #CONFIG_CACHE_PARAM} context param, <code>true</code>
+ * to use the servlet temp folder, or the path of the cache file.
+ */
+public class JKFacesConfigurationsCache {
+
+	/** Context param to enable the cache. */
+	public static final String CONFIG_CACHE_PARAM = "com.jk.faces.CONFIG_CACHE";
+
+	/** The Constant DEFAULT_FILE_NAME. */
+	private static final String DEFAULT_FILE_NAME = "jk-faces-config.bin";
+
+	/** The Constant MAGIC. */
+	private static final int MAGIC = 0x4A4B4643;
+
+	/** The Constant VERSION. */
+	private static final int VERSION = 3;
+
+	/** The Constant TAGLIB_EXTENSION. */
+	private static final String TAGLIB_EXTENSION = ".taglib.xml";
+
+	/** The context params of the webapp tag libraries, JSF 2 and legacy. */
+	private static final String[] LIBRARIES_PARAMS = { "javax.faces.FACELETS_LIBRARIES", "facelets.LIBRARIES" };
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKFacesConfigurationsCache.class.getName());
+
+	/**
+	 * Creates the cache for the current faces context if enabled.
+	 *
+	 * @param xml
+	 *            the configurations xml
+	 * @return the cache, or null if disabled or not in JSF request
+	 */
+	public static JKFacesConfigurationsCache create(final byte[] xml) {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		if (context == null || !(context.getExternalContext().getContext() instanceof ServletContext)) {
+			return null;
+		}
+		final ServletContext servletContext = (ServletContext) context.getExternalContext().getContext();
+		final String value = servletContext.getInitParameter(CONFIG_CACHE_PARAM);
+		if (value == null || value.trim().isEmpty() || value.trim().equalsIgnoreCase("false")) {
+			return null;
+		}
+		final File file;
+		if (value.trim().equalsIgnoreCase("true")) {
+			final File tempDir = (File) servletContext.getAttribute(ServletContext.TEMPDIR);
+			if (tempDir == null) {
+				return null;
+			}
+			file = new File(tempDir, DEFAULT_FILE_NAME);
+		} else {
+			file = new File(value.trim());
+		}
+		return new JKFacesConfigurationsCache(file, fingerprint(xml, servletContext));
+	}
+
+	/**
+	 * Calculate the fingerprint of the configurations and the tag libraries
+	 * sources on the classpath and in the webapp.
+	 *
+	 * @param xml
+	 *            the configurations xml
+	 * @param servletContext
+	 *            the servlet context to read the webapp tag libraries from,
+	 *            could be null
+	 * @return the fingerprint
+	 */
+	static String fingerprint(final byte[] xml, final ServletContext servletContext) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(xml);
+			update(digest, FacesContext.class.getPackage().getImplementationVersion());
+
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader == null) {
+				loader = JKFacesConfigurationsCache.class.getClassLoader();
+			}
+			final List<String> sources = new ArrayList<>();
+			final Enumeration<URL> resources = loader.getResources("META-INF/");
+			while (resources.hasMoreElements()) {
+				sources.add(describe(resources.nextElement()));
+			}
+			Collections.sort(sources);
+			for (final String source : sources) {
+				update(digest, source);
+			}
+			if (servletContext != null) {
+				updateWebappLibraries(digest, servletContext);
+			}
+			final StringBuilder buf = new StringBuilder();
+			for (final byte b : digest.digest()) {
+				buf.append(String.format("%02x", b));
+			}
+			return buf.toString();
+		} catch (final Exception e) {
+			throw new IllegalStateException("unable to calculate configurations fingerprint", e);
+		}
+	}
+
+	/**
+	 * Describe the classpath entry of the META-INF folder, by its path, size
+	 * and last modified time.
+	 *
+	 * @param url
+	 *            the url
+	 * @return the string
+	 */
+	private static String describe(final URL url) {
+		final StringBuilder buf = new StringBuilder(url.toString());
+		if ("jar".equals(url.getProtocol())) {
+			final String path = url.getPath();
+			final int index = path.indexOf("!/");
+			if (index > 0 && path.startsWith("file:")) {
+				final File jar = new File(path.substring("file:".length(), index));
+				buf.append(':').append(jar.length()).append(':').append(jar.lastModified());
+			}
+		} else if ("file".equals(url.getProtocol())) {
+			final File[] files = new File(url.getPath()).listFiles();
+			if (files != null) {
+				for (final File file : files) {
+					if (file.getName().endsWith(TAGLIB_EXTENSION)) {
+						buf.append(':').append(file.getName()).append(':').append(file.length()).append(':').append(file.lastModified());
+					}
+				}
+			}
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Read nullable list of strings.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the list
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static List<String> readList(final DataInputStream in) throws IOException {
+		final int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		final List<String> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(readString(in));
+		}
+		return list;
+	}
+
+	/**
+	 * Read nullable string.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String readString(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Update the digest with nullable string.
+	 *
+	 * @param digest
+	 *            the digest
+	 * @param value
+	 *            the value
+	 */
+	private static void update(final MessageDigest digest, final String value) {
+		digest.update(String.valueOf(value).getBytes(Charset.forName("UTF-8")));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Update the digest with the path and the content of the tag libraries
+	 * declared in the webapp context params (e.g. under WEB-INF), the content
+	 * is used since the webapp could be deployed unexploded.
+	 *
+	 * @param digest
+	 *            the digest
+	 * @param servletContext
+	 *            the servlet context
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void updateWebappLibraries(final MessageDigest digest, final ServletContext servletContext) throws IOException {
+		for (final String param : LIBRARIES_PARAMS) {
+			final String value = servletContext.getInitParameter(param);
+			if (value == null) {
+				continue;
+			}
+			for (final String path : value.split(";")) {
+				if (path.trim().isEmpty()) {
+					continue;
+				}
+				update(digest, path.trim());
+				try (InputStream in = servletContext.getResourceAsStream(path.trim())) {
+					if (in == null) {
+						update(digest, null);
+						continue;
+					}
+					final byte[] buffer = new byte[4096];
+					int count;
+					while ((count = in.read(buffer)) != -1) {
+						digest.update(buffer, 0, count);
+					}
+					digest.update((byte) 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write nullable list of strings.
+	 *
+	 * @param out
+	 *            the out
+	 * @param list
+	 *            the list
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeList(final DataOutputStream out, final List<String> list) throws IOException {
+		out.writeInt(list == null ? -1 : list.size());
+		if (list != null) {
+			for (final String value : list) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	/**
+	 * Write nullable string.
+	 *
+	 * @param out
+	 *            the out
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	/** The file. */
+	private final File file;
+
+	/** The fingerprint. */
+	private final String fingerprint;
+
+	/**
+	 * Instantiates a new JK faces configurations cache.
+	 *
+	 * @param file
+	 *            the file
+	 * @param fingerprint
+	 *            the fingerprint
+	 */
+	public JKFacesConfigurationsCache(final File file, final String fingerprint) {
+		this.file = file;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Gets the file.
+	 *
+	 * @return the file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Gets the fingerprint.
+	 *
+	 * @return the fingerprint
+	 */
+	public String getFingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * Read the cached configurations if the file exists and matches the
+	 * fingerprint.
+	 *
+	 * @return the configurations, or null if not available or out dated
+	 */
+	public JKFacesConfigurations read() {
+		if (!this.file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(this.fingerprint)) {
+				logger.info("configurations cache is out dated : ".concat(this.file.getAbsolutePath()));
+				return null;
+			}
+			final int namespacesCount = in.readInt();
+			final List<JKNamespace> namespaces = new ArrayList<>(namespacesCount);
+			for (int i = 0; i < namespacesCount; i++) {
+				final JKNamespace namespace = new JKNamespace();
+				namespace.setUrl(readString(in));
+				namespace.setPrefix(readString(in));
+				namespaces.add(namespace);
+			}
+			final int mappingsCount = in.readInt();
+			final List<JKTagMapping> mappings = new ArrayList<>(mappingsCount);
+			for (int i = 0; i < mappingsCount; i++) {
+				final JKTagMapping mapping = new JKTagMapping();
+				mapping.sourceQName = readString(in);
+				mapping.targetQName = readString(in);
+				mapping.attributeName = readString(in);
+				mapping.attributeValue = readString(in);
+				mapping.auto = in.readBoolean();
+				final int conditionsCount = in.readInt();
+				if (conditionsCount > 0) {
+					final List<JKTagCondition> conditions = new ArrayList<>(conditionsCount);
+					for (int j = 0; j < conditionsCount; j++) {
+						final String present = readString(in);
+						conditions.add(new JKTagCondition(readString(in), readString(in), readString(in),
+								present == null ? null : Boolean.valueOf(present)));
+					}
+					mapping.setConditions(conditions);
+				}
+				final int namespaceIndex = in.readInt();
+				if (namespaceIndex >= 0) {
+					mapping.setNamespace(namespaces.get(namespaceIndex));
+				}
+				mappings.add(mapping);
+			}
+			final JKFacesConfigurations config = new JKFacesConfigurations();
+			config.setNamespaces(namespaces);
+			config.setTagMapping(Collections.unmodifiableList(mappings));
+			config.setUrlableTags(readList(in));
+			config.setLinkAttributes(readList(in));
+			config.setHtmlTags(readList(in));
+			logger.info(String.format("configurations loaded from cache %s (%d namespaces , %d mappings)", this.file.getAbsolutePath(),
+					namespacesCount, mappingsCount));
+			return config;
+		} catch (final Exception e) {
+			logger.log(Level.WARNING, "unable to read configurations cache : ".concat(this.file.getAbsolutePath()), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the resolved configurations, the file is replaced atomically.
+	 *
+	 * @param config
+	 *            the config
+	 */
+	public void write(final JKFacesConfigurations config) {
+		try {
+			final File parent = this.file.getAbsoluteFile().getParentFile();
+			parent.mkdirs();
+			final File temp = File.createTempFile(DEFAULT_FILE_NAME, ".tmp", parent);
+			final List<JKNamespace> namespaces = config.getNamespaces();
+			final Map<JKNamespace, Integer> indexes = new IdentityHashMap<>();
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(this.fingerprint);
+				out.writeInt(namespaces.size());
+				for (int i = 0; i < namespaces.size(); i++) {
+					final JKNamespace namespace = namespaces.get(i);
+					indexes.put(namespace, i);
+					writeString(out, namespace.getUrl());
+					writeString(out, namespace.getPrefix());
+				}
+				final List<JKTagMapping> mappings = config.getTagMapping();
+				out.writeInt(mappings.size());
+				for (final JKTagMapping mapping : mappings) {
+					writeString(out, mapping.getSourceQName());
+					writeString(out, mapping.getTargetQName());
+					writeString(out, mapping.getAttributeName());
+					writeString(out, mapping.getAttributeValue());
+					out.writeBoolean(mapping.isAuto());
+					out.writeInt(mapping.getConditions().size());
+					for (final JKTagCondition condition : mapping.getConditions()) {
+						writeString(out, condition.getPresent() == null ? null : condition.getPresent().toString());
+						writeString(out, condition.getAttributeName());
+						writeString(out, condition.getAttributeValue());
+						writeString(out, condition.getAttributePrefix());
+					}
+					final Integer index = mapping.getNamespace() == null ? null : indexes.get(mapping.getNamespace());
+					out.writeInt(index == null ? -1 : index);
+				}
+				writeList(out, config.getUrlableTags());
+				writeList(out, config.getLinkAttributes());
+				writeList(out, config.getHtmlTags());
+			}
+			Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logger.info("configurations cache written to : ".concat(this.file.getAbsolutePath()));
+		} catch (final Exception e) {
+			logger.log(Level.WARNING, "unable to write configurations cache : ".concat(this.file.getAbsolutePath()), e);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import com.sun.faces.application.ApplicationAssociate;
+
+/**
+ * <B>JKFacesConfigurationsWatcher</B> loads the configurations from an
+ * external override file (instead of <code>jk-faces-config.xml</code>) and
+ * optionally watches it, the file is parsed and indexed in a background thread
+ * when changed, then swapped atomically by
+ * {@link JKFacesConfigurations#reload(ApplicationAssociate)}.
+ * <P/>
+ * Only facelets compiled after the swap are affected, so use it along with
+ * <code>javax.faces.FACELETS_REFRESH_PERIOD</code> to apply the new mappings
+ * on already compiled views.
+ */
+public class JKFacesConfigurationsWatcher implements ServletContextListener {
+
+	/** Context param for the path of the override config file. */
+	public static final String CONFIG_FILE_PARAM = "com.jk.faces.CONFIG_FILE";
+
+	/**
+	 * Context param for the interval (in seconds) to check the override file
+	 * for changes, 0 or less disables watching.
+	 */
+	public static final String CONFIG_WATCH_INTERVAL_PARAM = "com.jk.faces.CONFIG_WATCH_INTERVAL";
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKFacesConfigurationsWatcher.class.getName());
+
+	/** The executor. */
+	private ScheduledExecutorService executor;
+
+	/** The last modified. */
+	private long lastModified;
+
+	/**
+	 * Parses the watch interval, an invalid value disables watching.
+	 *
+	 * @param interval
+	 *            the context param value
+	 * @return the interval in seconds, 0 if not set or invalid
+	 */
+	private static long readInterval(final String interval) {
+		if (interval == null || interval.trim().isEmpty()) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(interval.trim());
+		} catch (final NumberFormatException e) {
+			logger.warning(String.format("invalid %s value (%s), watching is disabled", CONFIG_WATCH_INTERVAL_PARAM, interval));
+			return 0;
+		}
+	}
+
+	/**
+	 * Check the file and reload the configurations if changed.
+	 *
+	 * @param context
+	 *            the context
+	 * @param file
+	 *            the file
+	 */
+	protected void checkForChanges(final ServletContext context, final File file) {
+		final long modified = file.lastModified();
+		if (modified == 0 || modified == this.lastModified) {
+			return;
+		}
+		this.lastModified = modified;
+		logger.info("configurations file changed , reloading : ".concat(file.getAbsolutePath()));
+		try {
+			JKFacesConfigurations.reload(ApplicationAssociate.getInstance(context));
+		} catch (final Exception e) {
+			// keep the current snapshot
+			logger.log(Level.SEVERE, "unable to reload configurations , current configurations will be kept", e);
+		}
+	}
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		final ServletContext context = event.getServletContext();
+		final String path = context.getInitParameter(CONFIG_FILE_PARAM);
+		if (path == null || path.trim().isEmpty()) {
+			return;
+		}
+		final File file = new File(path.trim());
+		if (!file.isFile()) {
+			logger.warning("configurations file not found : ".concat(file.getAbsolutePath()));
+			return;
+		}
+		this.lastModified = file.lastModified();
+		JKFacesConfigurations.setOverrideFile(file);
+		// the listeners order is not guaranteed, the configurations could
+		// have been loaded already (e.g. by the JSF initialization)
+		if (JKFacesConfigurations.isLoaded()) {
+			JKFacesConfigurations.reload(ApplicationAssociate.getInstance(context));
+		}
+
+		final String interval = context.getInitParameter(CONFIG_WATCH_INTERVAL_PARAM);
+		final long seconds = readInterval(interval);
+		if (seconds > 0) {
+			logger.info(String.format("watching %s every %d seconds", file.getAbsolutePath(), seconds));
+			this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "jk-faces-config-watcher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.executor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					checkForChanges(context, file);
+				}
+			}, seconds, seconds, TimeUnit.SECONDS);
+		}
+	}
+
+}
@@ -15,6 +15,8 @@
  */
 package com.jk.faces.config;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -24,7 +26,7 @@ import org.jboss.logging.Logger;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class JKNamespace {
-	private static int counter = 0;
+	private static final AtomicInteger counter = new AtomicInteger();
 	static Logger logger = Logger.getLogger(JKNamespace.class.getName());
 
 	protected static String createPrefix(final String url) {
@@ -32,7 +34,7 @@ public class JKNamespace {
 	}
 
 	@XmlTransient
-	Integer index = counter++;
+	Integer index = counter.getAndIncrement();
 
 	@XmlElement
 	String prefix;
@@ -50,7 +52,9 @@ public class JKNamespace {
 	}
 
 	public JKNamespace(final String url, final String prefix) {
-		logger.info(String.format("create Namespace with url(%s) and Prefix(%s) ", url, prefix));
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("create Namespace with url(%s) and Prefix(%s) ", url, prefix));
+		}
 		this.url = url;
 		this.prefix = prefix;
 	}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <B>JKTagClassification</B> is an immutable classification of the tags and
+ * attributes used by the decorator, loaded from the
+ * <code>urlable-tags</code>, <code>link-attributes</code> and
+ * <code>html-tags</code> sections of <code>jk-faces-config.xml</code>, with
+ * exact (not substring) matching.
+ */
+public final class JKTagClassification {
+
+	/** The default urlable tags. */
+	public static final List<String> DEFAULT_URLABLE_TAGS = Collections.unmodifiableList(Arrays.asList("img", "script", "a", "link"));
+
+	/** The default link attributes. */
+	public static final List<String> DEFAULT_LINK_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList("src", "href"));
+
+	/** The default html root tags. */
+	public static final List<String> DEFAULT_HTML_TAGS = Collections.unmodifiableList(Arrays.asList("html"));
+
+	/** The default classification. */
+	public static final JKTagClassification DEFAULT = new JKTagClassification(null, null, null);
+
+	/**
+	 * Creates the set of the values, or the defaults if no values.
+	 */
+	private static Set<String> toSet(final Collection<String> values, final Collection<String> defaults) {
+		final Set<String> set = new HashSet<>();
+		for (final String value : values == null || values.isEmpty() ? defaults : values) {
+			if (value != null && !value.trim().isEmpty()) {
+				set.add(value.trim());
+			}
+		}
+		return Collections.unmodifiableSet(set);
+	}
+
+	/** The urlable tags. */
+	private final Set<String> urlableTags;
+
+	/** The link attributes. */
+	private final Set<String> linkAttributes;
+
+	/** The html tags. */
+	private final Set<String> htmlTags;
+
+	/**
+	 * Instantiates a new JK tag classification, null or empty collections
+	 * will be replaced by the defaults.
+	 *
+	 * @param urlableTags
+	 *            the local names of the tags that could hold links
+	 * @param linkAttributes
+	 *            the local names of the attributes that holds links
+	 * @param htmlTags
+	 *            the local names of the html root tags
+	 */
+	public JKTagClassification(final Collection<String> urlableTags, final Collection<String> linkAttributes,
+			final Collection<String> htmlTags) {
+		this.urlableTags = toSet(urlableTags, DEFAULT_URLABLE_TAGS);
+		this.linkAttributes = toSet(linkAttributes, DEFAULT_LINK_ATTRIBUTES);
+		this.htmlTags = toSet(htmlTags, DEFAULT_HTML_TAGS);
+	}
+
+	public Set<String> getHtmlTags() {
+		return this.htmlTags;
+	}
+
+	public Set<String> getLinkAttributes() {
+		return this.linkAttributes;
+	}
+
+	public Set<String> getUrlableTags() {
+		return this.urlableTags;
+	}
+
+	/**
+	 * Checks if the tag with the given local name is html root tag.
+	 *
+	 * @param localName
+	 *            the local name
+	 * @return true, if is html tag
+	 */
+	public boolean isHtmlTag(final String localName) {
+		return this.htmlTags.contains(localName);
+	}
+
+	/**
+	 * Checks if the attribute with the given local name holds a link.
+	 *
+	 * @param localName
+	 *            the attribute local name
+	 * @return true, if is link attribute
+	 */
+	public boolean isLinkAttribute(final String localName) {
+		return this.linkAttributes.contains(localName);
+	}
+
+	/**
+	 * Checks if the tag with the given local name could hold links.
+	 *
+	 * @param localName
+	 *            the local name
+	 * @return true, if is urlable
+	 */
+	public boolean isUrlable(final String localName) {
+		return this.urlableTags.contains(localName);
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+
+/**
+ * <B>JKTagCondition</B> is a single attribute condition of a
+ * {@link JKTagMapping}, one of :
+ * <ul>
+ * <li>attribute-value : the attribute equals the value.</li>
+ * <li>attribute-prefix : the attribute starts with the prefix.</li>
+ * <li>present : the attribute exists (true) or not (false), with any
+ * value.</li>
+ * </ul>
+ * Example :
+ *
+ * <pre>
+ * &lt;condition&gt;
+ * 	&lt;attribute-name&gt;href&lt;/attribute-name&gt;
+ * 	&lt;attribute-prefix&gt;#&lt;/attribute-prefix&gt;
+ * &lt;/condition&gt;
+ * </pre>
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class JKTagCondition {
+
+	@XmlElement(name = "attribute-name")
+	String attributeName;
+
+	@XmlElement(name = "attribute-value")
+	String attributeValue;
+
+	@XmlElement(name = "attribute-prefix")
+	String attributePrefix;
+
+	@XmlElement(name = "present")
+	Boolean present;
+
+	public JKTagCondition() {
+	}
+
+	public JKTagCondition(final String attributeName, final String attributeValue, final String attributePrefix, final Boolean present) {
+		this.attributeName = attributeName;
+		this.attributeValue = attributeValue;
+		this.attributePrefix = attributePrefix;
+		this.present = present;
+	}
+
+	public String getAttributeName() {
+		return this.attributeName;
+	}
+
+	public String getAttributePrefix() {
+		return this.attributePrefix;
+	}
+
+	public String getAttributeValue() {
+		return this.attributeValue;
+	}
+
+	public Boolean getPresent() {
+		return this.present;
+	}
+
+	/**
+	 * Checks if the condition requires the attribute to be absent.
+	 *
+	 * @return true, if is absent
+	 */
+	public boolean isAbsent() {
+		return this.present != null && !this.present && this.attributeValue == null && this.attributePrefix == null;
+	}
+
+	/**
+	 * Checks if the given attribute value satisfies the condition.
+	 *
+	 * @param value
+	 *            the attribute value, null if the attribute doesn't exist
+	 * @return true, if successful
+	 */
+	public boolean matches(final String value) {
+		if (isAbsent()) {
+			return value == null;
+		}
+		if (value == null) {
+			return false;
+		}
+		if (this.attributeValue != null) {
+			return value.equals(this.attributeValue);
+		}
+		if (this.attributePrefix != null) {
+			return value.startsWith(this.attributePrefix);
+		}
+		return true;
+	}
+
+	public void setAttributeName(final String attributeName) {
+		this.attributeName = attributeName;
+	}
+
+	public void setAttributePrefix(final String attributePrefix) {
+		this.attributePrefix = attributePrefix;
+	}
+
+	public void setAttributeValue(final String attributeValue) {
+		this.attributeValue = attributeValue;
+	}
+
+	public void setPresent(final Boolean present) {
+		this.present = present;
+	}
+
+	@Override
+	public String toString() {
+		if (isAbsent()) {
+			return "!".concat(this.attributeName);
+		}
+		if (this.attributeValue != null) {
+			return this.attributeName + "=" + this.attributeValue;
+		}
+		if (this.attributePrefix != null) {
+			return this.attributeName + "^=" + this.attributePrefix;
+		}
+		return this.attributeName;
+	}
+}
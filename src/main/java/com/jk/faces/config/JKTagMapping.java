@@ -15,11 +15,16 @@
  */
 package com.jk.faces.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlTransient;
 
 import com.jk.faces.util.JKJsfUtil;
@@ -40,6 +45,11 @@ public class JKTagMapping implements Comparable<JKTagMapping> {
 	@XmlElement(name = "attribute-value")
 	String attributeValue;
 
+	// additional conditions, all should match along with attribute-name
+	@XmlElementWrapper(name = "conditions")
+	@XmlElement(name = "condition")
+	List<JKTagCondition> conditions;
+
 	@XmlTransient
 	private JKNamespace namespace;
 	// loaded from JSF container at runtime
@@ -54,7 +64,9 @@ public class JKTagMapping implements Comparable<JKTagMapping> {
 	}
 
 	public JKTagMapping(final String sourceQName, final String targetQName, final JKNamespace namespace) {
-		logger.info(String.format("creating TagMapping with sourceTag(%s) and (%s)", sourceQName, targetQName));
+		if (logger.isLoggable(Level.INFO)) {
+			logger.info(String.format("creating TagMapping with sourceTag(%s) and (%s)", sourceQName, targetQName));
+		}
 		this.sourceQName = sourceQName;
 		this.targetQName = targetQName;
 		this.namespace = namespace;
@@ -85,6 +97,25 @@ public class JKTagMapping implements Comparable<JKTagMapping> {
 		return this.attributeValue;
 	}
 
+	/**
+	 * Gets all the conditions of this mapping, including the
+	 * attribute-name/attribute-value pair.
+	 *
+	 * @return the conditions
+	 */
+	public List<JKTagCondition> getAllConditions() {
+		if (this.attributeName == null) {
+			return getConditions();
+		}
+		final List<JKTagCondition> all = new ArrayList<>(getConditions());
+		all.add(0, new JKTagCondition(this.attributeName, this.attributeValue, null, null));
+		return all;
+	}
+
+	public List<JKTagCondition> getConditions() {
+		return this.conditions == null ? Collections.<JKTagCondition> emptyList() : this.conditions;
+	}
+
 	public JKNamespace getNamespace() {
 		return this.namespace;
 	}
@@ -113,6 +144,16 @@ public class JKTagMapping implements Comparable<JKTagMapping> {
 		return this.auto;
 	}
 
+	/**
+	 * Checks if the mapping could match any tag, attribute-name without
+	 * attribute-value never matches.
+	 *
+	 * @return true, if is matchable
+	 */
+	public boolean isMatchable() {
+		return this.attributeName == null || this.attributeValue != null;
+	}
+
 	public void setAttributeName(final String attributeName) {
 		this.attributeName = attributeName;
 	}
@@ -121,6 +162,14 @@ public class JKTagMapping implements Comparable<JKTagMapping> {
 		this.attributeValue = attributeValue;
 	}
 
+	public void setConditions(final List<JKTagCondition> conditions) {
+		this.conditions = conditions;
+	}
+
+	void setNamespace(final JKNamespace namespace) {
+		this.namespace = namespace;
+	}
+
 	public void setSourceQName(final String sourceTag) {
 		this.sourceQName = sourceTag;
 	}
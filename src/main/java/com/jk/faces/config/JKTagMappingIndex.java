@@ -0,0 +1,443 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
+
+import com.jk.faces.tags.JKTagWrapper;
+
+/**
+ * <B>JKTagMappingIndex</B> is an immutable lookup table compiled from the
+ * sorted list of {@link JKTagMapping}s.
+ * <P/>
+ * Mappings are grouped by source qName, the rules of each group are compiled
+ * into a decision tree, every node tests a single attribute (by exact value,
+ * longest matching prefix, presence or absence), so a tag is matched with one
+ * lookup per tested attribute regardless of the number of rules.
+ * <P/>
+ * When more than one rule matches, the first one in the sorted list wins, the
+ * same as a scan of the list: each leaf holds the rule with the lowest sorted
+ * position among the rules matching its branch.
+ */
+public final class JKTagMappingIndex {
+
+	/**
+	 * The mappings of a single source qName.
+	 */
+	static final class Entry {
+
+		/** The first mapping of the qName in the sorted order. */
+		private final JKTagMapping first;
+
+		/** The rules in sorted order, compiled into {@link #root}. */
+		private final List<Rule> rules = new ArrayList<>();
+
+		/** The root of the decision tree. */
+		private Node root;
+
+		Entry(final JKTagMapping first) {
+			this.first = first;
+		}
+
+		void add(final JKTagMapping mapping, final int order) {
+			if (mapping.isMatchable()) {
+				this.rules.add(new Rule(mapping, order));
+			}
+		}
+
+		void compile() {
+			// most tested attributes first
+			final Map<String, Integer> usage = new HashMap<>();
+			for (final Rule rule : this.rules) {
+				for (final String name : rule.conditions.keySet()) {
+					final Integer count = usage.get(name);
+					usage.put(name, count == null ? 1 : count + 1);
+				}
+			}
+			final List<String> attributes = new ArrayList<>(usage.keySet());
+			Collections.sort(attributes, new Comparator<String>() {
+				@Override
+				public int compare(final String o1, final String o2) {
+					final int result = usage.get(o2).compareTo(usage.get(o1));
+					return result == 0 ? o1.compareTo(o2) : result;
+				}
+			});
+			this.root = Node.compile(this.rules, attributes, new HashMap<String, Node>());
+		}
+
+		JKTagMapping find(final JKTagWrapper wrapper) {
+			return this.root.find(wrapper, null);
+		}
+
+		JKTagMapping find(final TagAttribute[] attributes) {
+			return this.root.find(null, attributes);
+		}
+	}
+
+	/**
+	 * Decision tree node, either a leaf with the result, or a test on single
+	 * attribute.
+	 */
+	static final class Node {
+
+		/** The leaf with no mapping. */
+		static final Node NONE = new Node((Rule) null);
+
+		/**
+		 * Compile the candidate rules into a node.
+		 *
+		 * @param candidates
+		 *            the candidates, in sorted order
+		 * @param attributes
+		 *            the attributes not tested yet
+		 * @param compiled
+		 *            already compiled nodes, shared by identical branches
+		 * @return the node
+		 */
+		static Node compile(final List<Rule> candidates, final List<String> attributes, final Map<String, Node> compiled) {
+			if (candidates.isEmpty()) {
+				return NONE;
+			}
+			// the first candidate has the lowest sorted position, if it
+			// doesn't depend on any remaining attribute it matches and wins
+			final Rule first = candidates.get(0);
+			String attribute = null;
+			for (final String name : attributes) {
+				if (first.conditions.containsKey(name)) {
+					attribute = name;
+					break;
+				}
+			}
+			if (attribute == null) {
+				return new Node(first);
+			}
+			final StringBuilder key = new StringBuilder(attributes.toString());
+			for (final Rule rule : candidates) {
+				key.append(',').append(rule.order);
+			}
+			Node node = compiled.get(key.toString());
+			if (node != null) {
+				return node;
+			}
+
+			final List<String> remaining = new ArrayList<>(attributes);
+			remaining.remove(attribute);
+			final TreeSet<String> values = new TreeSet<>();
+			final TreeSet<String> prefixes = new TreeSet<>();
+			for (final Rule rule : candidates) {
+				final List<JKTagCondition> conditions = rule.conditions.get(attribute);
+				if (conditions != null) {
+					for (final JKTagCondition condition : conditions) {
+						if (condition.getAttributeValue() != null) {
+							values.add(condition.getAttributeValue());
+						} else if (condition.getAttributePrefix() != null) {
+							prefixes.add(condition.getAttributePrefix());
+						}
+					}
+				}
+			}
+
+			node = new Node(attribute);
+			for (final String value : values) {
+				node.values.put(value, compile(filter(candidates, attribute, BranchType.VALUE, value), remaining, compiled));
+			}
+			final TreeSet<Integer> lengths = new TreeSet<>(Collections.reverseOrder());
+			for (final String prefix : prefixes) {
+				node.prefixes.put(prefix, compile(filter(candidates, attribute, BranchType.PREFIX, prefix), remaining, compiled));
+				lengths.add(prefix.length());
+			}
+			node.prefixLengths = new int[lengths.size()];
+			int i = 0;
+			for (final Integer length : lengths) {
+				node.prefixLengths[i++] = length;
+			}
+			node.present = compile(filter(candidates, attribute, BranchType.PRESENT, null), remaining, compiled);
+			node.absent = compile(filter(candidates, attribute, BranchType.ABSENT, null), remaining, compiled);
+			compiled.put(key.toString(), node);
+			return node;
+		}
+
+		/**
+		 * Keep the candidates that accepts the branch of the attribute.
+		 */
+		private static List<Rule> filter(final List<Rule> candidates, final String attribute, final BranchType type, final String value) {
+			final List<Rule> result = new ArrayList<>();
+			for (final Rule rule : candidates) {
+				if (rule.accepts(attribute, type, value)) {
+					result.add(rule);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * The rule of the leaf with its sorted position, the lowest among the
+		 * rules matching the branch, null if none or not a leaf.
+		 */
+		private final Rule rule;
+
+		/** The tested attribute, null if leaf. */
+		private final String attribute;
+
+		/** exact value -> node. */
+		private final Map<String, Node> values = new HashMap<>();
+
+		/** prefix -> node. */
+		private final Map<String, Node> prefixes = new HashMap<>();
+
+		/** The distinct prefixes lengths, longest first. */
+		private int[] prefixLengths;
+
+		/** The node if present with any other value. */
+		private Node present;
+
+		/** The node if absent. */
+		private Node absent;
+
+		Node(final Rule rule) {
+			this.rule = rule;
+			this.attribute = null;
+		}
+
+		Node(final String attribute) {
+			this.rule = null;
+			this.attribute = attribute;
+		}
+
+		JKTagMapping find(final JKTagWrapper wrapper, final TagAttribute[] attributes) {
+			Node node = this;
+			while (node.attribute != null) {
+				final String value = wrapper != null ? wrapper.getAttributeValue(node.attribute) : getAttributeValue(attributes, node.attribute);
+				node = node.next(value);
+			}
+			return node.rule == null ? null : node.rule.mapping;
+		}
+
+		private Node next(final String value) {
+			if (value == null) {
+				return this.absent;
+			}
+			Node next = this.values.get(value);
+			if (next != null) {
+				return next;
+			}
+			for (final int length : this.prefixLengths) {
+				if (length <= value.length()) {
+					next = this.prefixes.get(value.substring(0, length));
+					if (next != null) {
+						return next;
+					}
+				}
+			}
+			return this.present;
+		}
+	}
+
+	/**
+	 * The branch of attribute test.
+	 */
+	enum BranchType {
+		VALUE, PREFIX, PRESENT, ABSENT
+	}
+
+	/**
+	 * Mapping rule with its position in the sorted list, and its conditions
+	 * grouped by attribute name.
+	 */
+	static final class Rule {
+		final JKTagMapping mapping;
+		final int order;
+		final Map<String, List<JKTagCondition>> conditions = new LinkedHashMap<>();
+
+		Rule(final JKTagMapping mapping, final int order) {
+			this.mapping = mapping;
+			this.order = order;
+			for (final JKTagCondition condition : mapping.getAllConditions()) {
+				if (condition.getAttributeName() == null) {
+					continue;
+				}
+				List<JKTagCondition> list = this.conditions.get(condition.getAttributeName());
+				if (list == null) {
+					list = new ArrayList<>();
+					this.conditions.put(condition.getAttributeName(), list);
+				}
+				list.add(condition);
+			}
+		}
+
+		/**
+		 * Checks if all the conditions of this rule on the attribute accepts
+		 * the branch.
+		 *
+		 * @param attribute
+		 *            the attribute
+		 * @param type
+		 *            the branch type
+		 * @param value
+		 *            the value of VALUE branch, or the longest matching prefix
+		 *            of PREFIX branch
+		 * @return true, if successful
+		 */
+		boolean accepts(final String attribute, final BranchType type, final String value) {
+			final List<JKTagCondition> list = this.conditions.get(attribute);
+			if (list == null) {
+				return true;
+			}
+			for (final JKTagCondition condition : list) {
+				switch (type) {
+				case VALUE:
+					if (!condition.matches(value)) {
+						return false;
+					}
+					break;
+				case ABSENT:
+					if (!condition.matches(null)) {
+						return false;
+					}
+					break;
+				case PREFIX:
+					// any value that has this prefix as its longest matching
+					// prefix, and not one of the exact values
+					if (condition.isAbsent() || condition.getAttributeValue() != null
+							|| condition.getAttributePrefix() != null && !value.startsWith(condition.getAttributePrefix())) {
+						return false;
+					}
+					break;
+				case PRESENT:
+					if (condition.isAbsent() || condition.getAttributeValue() != null || condition.getAttributePrefix() != null) {
+						return false;
+					}
+					break;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Gets the value of the attribute with the given local name, the same way
+	 * {@link JKTagWrapper#getAttributeValue(String)} does.
+	 *
+	 * @param attributes
+	 *            the attributes
+	 * @param localName
+	 *            the local name
+	 * @return the attribute value
+	 */
+	static String getAttributeValue(final TagAttribute[] attributes, final String localName) {
+		for (final TagAttribute attribute : attributes) {
+			if (attribute.getLocalName().equals(localName)) {
+				return attribute.getValue();
+			}
+		}
+		return null;
+	}
+
+	/** source qName -> entry. */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Compiles the index from the given mappings, the list should be already
+	 * sorted.
+	 *
+	 * @param sortedMappings
+	 *            the sorted mappings
+	 */
+	public JKTagMappingIndex(final List<JKTagMapping> sortedMappings) {
+		final Map<String, Entry> entries = new HashMap<>();
+		for (int i = 0; i < sortedMappings.size(); i++) {
+			final JKTagMapping mapping = sortedMappings.get(i);
+			Entry entry = entries.get(mapping.getSourceQName());
+			if (entry == null) {
+				entry = new Entry(mapping);
+				entries.put(mapping.getSourceQName(), entry);
+			}
+			entry.add(mapping, i);
+		}
+		for (final Entry entry : entries.values()) {
+			entry.compile();
+		}
+		this.entries = Collections.unmodifiableMap(entries);
+	}
+
+	/**
+	 * Find the mapping for the given tag, taking the attribute conditions into
+	 * account.
+	 *
+	 * @param wrapper
+	 *            the wrapper
+	 * @return the tag mapping, or null if not found
+	 */
+	public JKTagMapping find(final JKTagWrapper wrapper) {
+		final Entry entry = this.entries.get(wrapper.getqName());
+		return entry == null ? null : entry.find(wrapper);
+	}
+
+	/**
+	 * Find the mapping for the given tag without wrapping it, taking the
+	 * attribute conditions into account.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @return the tag mapping, or null if not found
+	 */
+	public JKTagMapping find(final Tag tag) {
+		final Entry entry = this.entries.get(tag.getQName());
+		return entry == null ? null : entry.find(tag.getAttributes().getAll());
+	}
+
+	/**
+	 * Find the first mapping of the given source qName.
+	 *
+	 * @param qName
+	 *            the q name
+	 * @return the tag mapping, or null if not found
+	 */
+	public JKTagMapping find(final String qName) {
+		final Entry entry = this.entries.get(qName);
+		return entry == null ? null : entry.first;
+	}
+
+	/**
+	 * Checks if the index contains any mapping for the given source qName.
+	 *
+	 * @param qName
+	 *            the q name
+	 * @return true, if successful
+	 */
+	public boolean contains(final String qName) {
+		return this.entries.containsKey(qName);
+	}
+
+	/**
+	 * Number of the distinct source qNames.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <B>JKDecorationMetrics</B> collects the {@link JKTagDecorator} counters
+ * and timing per source qName, disabled by default, when disabled the
+ * decorator doesn't call it at all except for {@link #isEnabled()}.
+ * <P/>
+ * Exposed through JMX by {@link JKDecorationMetricsListener}, or directly
+ * using {@link #getStats()}.
+ */
+public class JKDecorationMetrics implements JKDecorationMetricsMXBean {
+
+	/**
+	 * The live counters of single qName.
+	 */
+	static final class Counters {
+		final AtomicLong decorations = new AtomicLong();
+		final AtomicLong passThroughs = new AtomicLong();
+		final AtomicLong cacheHits = new AtomicLong();
+		final AtomicLong mappingHits = new AtomicLong();
+		final AtomicLong mappingMisses = new AtomicLong();
+		final AtomicLong linkRewrites = new AtomicLong();
+		final AtomicLong namespaceInjections = new AtomicLong();
+		final AtomicLong totalNanos = new AtomicLong();
+		final AtomicLong maxNanos = new AtomicLong();
+
+		JKDecorationStats snapshot(final String qName) {
+			return new JKDecorationStats(qName, this.decorations.get(), this.passThroughs.get(), this.cacheHits.get(), this.mappingHits.get(),
+					this.mappingMisses.get(), this.linkRewrites.get(), this.namespaceInjections.get(), this.totalNanos.get(),
+					this.maxNanos.get());
+		}
+	}
+
+	private static final JKDecorationMetrics instance = new JKDecorationMetrics();
+
+	/**
+	 * Gets the single instance of JKDecorationMetrics.
+	 *
+	 * @return single instance of JKDecorationMetrics
+	 */
+	public static JKDecorationMetrics getInstance() {
+		return instance;
+	}
+
+	/** The enabled. */
+	private volatile boolean enabled;
+
+	/** qName -> counters. */
+	private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the counters of the qName.
+	 *
+	 * @param qName
+	 *            the q name
+	 * @return the counters
+	 */
+	private Counters counters(final String qName) {
+		Counters result = this.counters.get(qName);
+		if (result == null) {
+			final Counters created = new Counters();
+			result = this.counters.putIfAbsent(qName, created);
+			if (result == null) {
+				result = created;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, JKDecorationStats> getStats() {
+		final Map<String, JKDecorationStats> stats = new TreeMap<>();
+		for (final Map.Entry<String, Counters> entry : this.counters.entrySet()) {
+			stats.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+		}
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * Gets the counters snapshot of single qName.
+	 *
+	 * @param qName
+	 *            the q name
+	 * @return the stats, or null if not decorated yet
+	 */
+	public JKDecorationStats getStats(final String qName) {
+		final Counters result = this.counters.get(qName);
+		return result == null ? null : result.snapshot(qName);
+	}
+
+	@Override
+	public long getTotalDecorations() {
+		long total = 0;
+		for (final Counters counter : this.counters.values()) {
+			total += counter.decorations.get();
+		}
+		return total;
+	}
+
+	@Override
+	public long getTotalNanos() {
+		long total = 0;
+		for (final Counters counter : this.counters.values()) {
+			total += counter.totalNanos.get();
+		}
+		return total;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Record the cache hit of tag.
+	 *
+	 * @param qName
+	 *            the source q name
+	 */
+	public void recordCacheHit(final String qName) {
+		counters(qName).cacheHits.incrementAndGet();
+	}
+
+	/**
+	 * Record single decoration with its time.
+	 *
+	 * @param qName
+	 *            the source q name
+	 * @param nanos
+	 *            the time spent in nanoseconds
+	 */
+	public void recordDecoration(final String qName, final long nanos) {
+		final Counters counter = counters(qName);
+		counter.decorations.incrementAndGet();
+		counter.totalNanos.addAndGet(nanos);
+		long max = counter.maxNanos.get();
+		while (nanos > max && !counter.maxNanos.compareAndSet(max, nanos)) {
+			max = counter.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Record links rewritten by the decorator.
+	 *
+	 * @param qName
+	 *            the source q name
+	 * @param count
+	 *            the count
+	 */
+	public void recordLinkRewrites(final String qName, final int count) {
+		if (count > 0) {
+			counters(qName).linkRewrites.addAndGet(count);
+		}
+	}
+
+	/**
+	 * Record the mapping lookup result.
+	 *
+	 * @param qName
+	 *            the source q name
+	 * @param found
+	 *            true if mapping found
+	 */
+	public void recordMapping(final String qName, final boolean found) {
+		if (found) {
+			counters(qName).mappingHits.incrementAndGet();
+		} else {
+			counters(qName).mappingMisses.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Record namespaces added by the decorator.
+	 *
+	 * @param qName
+	 *            the source q name
+	 * @param count
+	 *            the count
+	 */
+	public void recordNamespaceInjections(final String qName, final int count) {
+		if (count > 0) {
+			counters(qName).namespaceInjections.addAndGet(count);
+		}
+	}
+
+	/**
+	 * Record tag returned as is.
+	 *
+	 * @param qName
+	 *            the source q name
+	 */
+	public void recordPassThrough(final String qName) {
+		counters(qName).passThroughs.incrementAndGet();
+	}
+
+	@Override
+	public void reset() {
+		this.counters.clear();
+	}
+
+	@Override
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+}
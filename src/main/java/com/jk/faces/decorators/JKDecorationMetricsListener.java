@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * <B>JKDecorationMetricsListener</B> enables the {@link JKDecorationMetrics}
+ * if the {@link #DECORATION_METRICS_PARAM} context param is true, and
+ * registers it in the platform MBean server under
+ * <code>com.jk.faces:type=DecorationMetrics,context=&lt;context-path&gt;</code>.
+ */
+public class JKDecorationMetricsListener implements ServletContextListener {
+
+	/** Context param to enable the decoration metrics, default is false. */
+	public static final String DECORATION_METRICS_PARAM = "com.jk.faces.DECORATION_METRICS";
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKDecorationMetricsListener.class.getName());
+
+	/** The registered name. */
+	private ObjectName name;
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		if (this.name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+			} catch (final Exception e) {
+				logger.log(Level.WARNING, "unable to unregister decoration metrics", e);
+			}
+			this.name = null;
+		}
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		final ServletContext context = event.getServletContext();
+		if (!Boolean.parseBoolean(context.getInitParameter(DECORATION_METRICS_PARAM))) {
+			return;
+		}
+		final JKDecorationMetrics metrics = JKDecorationMetrics.getInstance();
+		metrics.setEnabled(true);
+		try {
+			final String path = context.getContextPath().isEmpty() ? "/" : context.getContextPath();
+			final ObjectName objectName = new ObjectName("com.jk.faces:type=DecorationMetrics,context=" + ObjectName.quote(path));
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(metrics, objectName);
+				this.name = objectName;
+			}
+			logger.info("decoration metrics registered as ".concat(objectName.toString()));
+		} catch (final Exception e) {
+			logger.log(Level.WARNING, "unable to register decoration metrics in JMX, it is still available by JKDecorationMetrics", e);
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link JKDecorationMetrics}.
+ */
+public interface JKDecorationMetricsMXBean {
+
+	/**
+	 * Gets the counters of each source qName.
+	 *
+	 * @return qName -> stats
+	 */
+	Map<String, JKDecorationStats> getStats();
+
+	long getTotalDecorations();
+
+	long getTotalNanos();
+
+	boolean isEnabled();
+
+	/**
+	 * Reset all the counters.
+	 */
+	void reset();
+
+	void setEnabled(boolean enabled);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * <B>JKDecorationStats</B> is an immutable snapshot of the decoration
+ * counters of a single source qName.
+ */
+public class JKDecorationStats {
+
+	private final String qName;
+	private final long decorations;
+	private final long passThroughs;
+	private final long cacheHits;
+	private final long mappingHits;
+	private final long mappingMisses;
+	private final long linkRewrites;
+	private final long namespaceInjections;
+	private final long totalNanos;
+	private final long maxNanos;
+
+	@ConstructorProperties({ "qName", "decorations", "passThroughs", "cacheHits", "mappingHits", "mappingMisses", "linkRewrites",
+			"namespaceInjections", "totalNanos", "maxNanos" })
+	public JKDecorationStats(final String qName, final long decorations, final long passThroughs, final long cacheHits,
+			final long mappingHits, final long mappingMisses, final long linkRewrites, final long namespaceInjections,
+			final long totalNanos, final long maxNanos) {
+		this.qName = qName;
+		this.decorations = decorations;
+		this.passThroughs = passThroughs;
+		this.cacheHits = cacheHits;
+		this.mappingHits = mappingHits;
+		this.mappingMisses = mappingMisses;
+		this.linkRewrites = linkRewrites;
+		this.namespaceInjections = namespaceInjections;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+
+	/**
+	 * Gets the number of tags returned from the decoration cache.
+	 *
+	 * @return the cache hits
+	 */
+	public long getCacheHits() {
+		return this.cacheHits;
+	}
+
+	/**
+	 * Gets the number of calls to the decorator.
+	 *
+	 * @return the decorations
+	 */
+	public long getDecorations() {
+		return this.decorations;
+	}
+
+	/**
+	 * Gets the number of rewritten links.
+	 *
+	 * @return the link rewrites
+	 */
+	public long getLinkRewrites() {
+		return this.linkRewrites;
+	}
+
+	public long getMappingHits() {
+		return this.mappingHits;
+	}
+
+	public long getMappingMisses() {
+		return this.mappingMisses;
+	}
+
+	public long getMaxNanos() {
+		return this.maxNanos;
+	}
+
+	/**
+	 * Gets the number of added namespaces attributes.
+	 *
+	 * @return the namespace injections
+	 */
+	public long getNamespaceInjections() {
+		return this.namespaceInjections;
+	}
+
+	/**
+	 * Gets the number of tags returned as is, without decoration.
+	 *
+	 * @return the pass throughs
+	 */
+	public long getPassThroughs() {
+		return this.passThroughs;
+	}
+
+	public String getqName() {
+		return this.qName;
+	}
+
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s : decorations=%d, passThroughs=%d, cacheHits=%d, mappingHits=%d, mappingMisses=%d, linkRewrites=%d, "
+				+ "namespaceInjections=%d, totalNanos=%d, maxNanos=%d", this.qName, this.decorations, this.passThroughs, this.cacheHits,
+				this.mappingHits, this.mappingMisses, this.linkRewrites, this.namespaceInjections, this.totalNanos, this.maxNanos);
+	}
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.view.Location;
+import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.jk.faces.config.JKFacesConfigurations;
+import com.sun.faces.facelets.tag.TagAttributeImpl;
+import com.sun.faces.facelets.tag.TagAttributesImpl;
+
+/**
+ * <B>JKFaceletPreDecorator</B> applies the {@link JKTagDecorator} decoration
+ * (tags mapping, missing namespaces and links fixing) on the facelets of a
+ * webapp at build time.
+ * <P/>
+ * The decorated facelets are written to the target folder with the same
+ * structure of the source folder, in addition to
+ * {@link #PRE_DECORATED_VIEWS_LIST} (under <code>WEB-INF/classes</code>) that
+ * lists the pre-decorated views, {@link JKTagDecorator} passes the tags of
+ * those views as is at runtime.
+ * <P/>
+ * Since there is no JSF container at build time, the tag libraries are loaded
+ * the way the container registers them, the libraries defined in java by the
+ * JSF implementation first (h, f, ui, c), then the
+ * <code>META-INF/*.taglib.xml</code> descriptors found on the classpath, and
+ * the mappings are created from them by the same
+ * {@link JKFacesConfigurations#loadTagLibraries(Map)} used at runtime. The list
+ * starts with the {@link JKFacesConfigurations#getDecorationFingerprint()
+ * fingerprint} of the mappings used, if the runtime mappings still differ
+ * (e.g. libraries registered only in the container, or in another order), the
+ * list is ignored with a warning and all the views are decorated at runtime.
+ * Facelets that could not be parsed as plain XML (e.g. using undeclared
+ * entities) are skipped and left for the runtime decoration.
+ * <P/>
+ * The links are fixed without the resources fingerprinting (see
+ * {@link com.jk.faces.resources.JKResourceFingerprints}), since it needs the
+ * servlet context, so the pre-decorated views are not fingerprinted.
+ * <P/>
+ * Usage: <code>JKFaceletPreDecorator &lt;webapp-source-dir&gt;
+ * &lt;target-dir&gt;</code>
+ */
+public class JKFaceletPreDecorator {
+
+	/** The Constant PRE_DECORATED_VIEWS_LIST. */
+	public static final String PRE_DECORATED_VIEWS_LIST = "/META-INF/jk-faces-predecorated.list";
+
+	/** The prefix of the decoration fingerprint line of the list. */
+	public static final String FINGERPRINT_PREFIX = "#fingerprint=";
+
+	/** The Constant FACELET_EXTENSION. */
+	private static final String FACELET_EXTENSION = ".xhtml";
+
+	/** The Constant TAGLIB_EXTENSION. */
+	private static final String TAGLIB_EXTENSION = ".taglib.xml";
+
+	/** The folder of the tag library descriptors scanned by the container. */
+	private static final String TAGLIB_FOLDER = "META-INF";
+
+	/**
+	 * The tag libraries defined in java by the JSF implementation, in the
+	 * order the container registers them.
+	 */
+	private static final String[] IMPLEMENTATION_LIBRARIES = { "com.sun.faces.facelets.tag.jsf.core.CoreLibrary",
+			"com.sun.faces.facelets.tag.jsf.html.HtmlLibrary", "com.sun.faces.facelets.tag.ui.UILibrary",
+			"com.sun.faces.facelets.tag.jstl.core.JstlCoreLibrary", "com.sun.faces.facelets.tag.jsf.PassThroughElementLibrary",
+			"com.sun.faces.facelets.tag.composite.CompositeLibrary" };
+
+	/**
+	 * The namespace constants of the implementation libraries, each one is a
+	 * library instance in the container.
+	 */
+	private static final String[] IMPLEMENTATION_NAMESPACES = { "Namespace", "IncorrectNamespace", "XMLNSNamespace" };
+
+	/** The Constant XMLNS_NAMESPACE. */
+	private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKFaceletPreDecorator.class.getName());
+
+	/**
+	 * Collect the classpath entries of the context class loader.
+	 *
+	 * @return the class path
+	 */
+	static List<File> getClassPath() {
+		final List<File> files = new ArrayList<>();
+		final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader instanceof URLClassLoader) {
+			for (final URL url : ((URLClassLoader) loader).getURLs()) {
+				if ("file".equals(url.getProtocol())) {
+					files.add(new File(url.getPath()));
+				}
+			}
+		}
+		if (files.isEmpty()) {
+			for (final String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+				files.add(new File(path));
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Create the tag libraries defined in java by the JSF implementation, the
+	 * missing ones are skipped.
+	 *
+	 * @return the libraries
+	 */
+	static List<Object> createImplementationLibraries() {
+		final List<Object> libraries = new ArrayList<>();
+		for (final String className : IMPLEMENTATION_LIBRARIES) {
+			try {
+				final Class<?> clas = Class.forName(className);
+				for (final String fieldName : IMPLEMENTATION_NAMESPACES) {
+					final Field field;
+					try {
+						field = clas.getField(fieldName);
+					} catch (final NoSuchFieldException e) {
+						continue;
+					}
+					final String namespace = (String) field.get(null);
+					try {
+						libraries.add(clas.getConstructor(String.class).newInstance(namespace));
+					} catch (final NoSuchMethodException e) {
+						// single namespace library
+						libraries.add(clas.newInstance());
+						break;
+					}
+				}
+			} catch (final Exception e) {
+				logger.log(Level.FINE, "unable to create tag library : ".concat(className), e);
+			}
+		}
+		return libraries;
+	}
+
+	/**
+	 * Load the tag libraries the way the container does, the libraries of the
+	 * JSF implementation then the facelets taglib descriptors under
+	 * <code>META-INF</code> on the classpath.
+	 *
+	 * @return namespace url -> tag names
+	 */
+	public static Map<String, Set<String>> loadTagLibrariesFromClasspath() {
+		final Map<String, Set<String>> libraries = new LinkedHashMap<>(JKFacesConfigurations.getTagLibraries(createImplementationLibraries()));
+		for (final File file : getClassPath()) {
+			try {
+				if (file.isDirectory()) {
+					loadTagLibraries(new File(file, TAGLIB_FOLDER), libraries);
+				} else if (file.isFile()) {
+					try (JarFile jar = new JarFile(file)) {
+						final Enumeration<JarEntry> entries = jar.entries();
+						while (entries.hasMoreElements()) {
+							final JarEntry entry = entries.nextElement();
+							if (entry.getName().startsWith(TAGLIB_FOLDER.concat("/")) && entry.getName().endsWith(TAGLIB_EXTENSION)) {
+								try (InputStream in = jar.getInputStream(entry)) {
+									readTagLibrary(in, libraries);
+								}
+							}
+						}
+					}
+				}
+			} catch (final Exception e) {
+				logger.log(Level.WARNING, "unable to load tag libraries from : " + file, e);
+			}
+		}
+		return libraries;
+	}
+
+	/**
+	 * Load the tag libraries from folder.
+	 *
+	 * @param folder
+	 *            the folder
+	 * @param libraries
+	 *            the libraries
+	 * @throws Exception
+	 *             the exception
+	 */
+	private static void loadTagLibraries(final File folder, final Map<String, Set<String>> libraries) throws Exception {
+		final File[] files = folder.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			if (file.isDirectory()) {
+				loadTagLibraries(file, libraries);
+			} else if (file.getName().endsWith(TAGLIB_EXTENSION)) {
+				try (InputStream in = new FileInputStream(file)) {
+					readTagLibrary(in, libraries);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the webapp source folder and the target folder
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: JKFaceletPreDecorator <webapp-source-dir> <target-dir>");
+			System.exit(1);
+		}
+		final JKFaceletPreDecorator preDecorator = new JKFaceletPreDecorator();
+		final List<String> views = preDecorator.decorate(new File(args[0]), new File(args[1]));
+		System.out.println(views.size() + " views pre-decorated");
+	}
+
+	/**
+	 * Read tag library descriptor.
+	 *
+	 * @param in
+	 *            the in
+	 * @param libraries
+	 *            the libraries
+	 * @throws Exception
+	 *             the exception
+	 */
+	private static void readTagLibrary(final InputStream in, final Map<String, Set<String>> libraries) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		final Document document = factory.newDocumentBuilder().parse(in);
+		final NodeList namespaces = document.getElementsByTagName("namespace");
+		if (namespaces.getLength() == 0) {
+			return;
+		}
+		final String url = namespaces.item(0).getTextContent().trim();
+		Set<String> tagNames = libraries.get(url);
+		if (tagNames == null) {
+			tagNames = new LinkedHashSet<>();
+			libraries.put(url, tagNames);
+		}
+		final NodeList names = document.getElementsByTagName("tag-name");
+		for (int i = 0; i < names.getLength(); i++) {
+			tagNames.add(names.item(i).getTextContent().trim());
+		}
+	}
+
+	/** The decorator. */
+	private final JKTagDecorator decorator = new JKTagDecorator();
+
+	/** The factory. */
+	private final DocumentBuilderFactory factory;
+
+	/**
+	 * Instantiates a new JK facelet pre decorator, and loads the tag libraries
+	 * found on the classpath into the configurations.
+	 */
+	public JKFaceletPreDecorator() {
+		this(loadTagLibrariesFromClasspath());
+	}
+
+	/**
+	 * Instantiates a new JK facelet pre decorator.
+	 *
+	 * @param libraries
+	 *            the tag libraries , namespace url -> tag names
+	 */
+	public JKFaceletPreDecorator(final Map<String, ? extends Set<String>> libraries) {
+		JKFacesConfigurations.getInstance().loadTagLibraries(libraries);
+		this.factory = DocumentBuilderFactory.newInstance();
+		this.factory.setNamespaceAware(true);
+		try {
+			this.factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		} catch (final Exception e) {
+			logger.log(Level.WARNING, "unable to disable external DTD loading", e);
+		}
+	}
+
+	/**
+	 * Apply the decoration result back on the element.
+	 *
+	 * @param document
+	 *            the document
+	 * @param element
+	 *            the element
+	 * @param decorated
+	 *            the decorated
+	 * @return the element
+	 */
+	protected Element apply(final Document document, Element element, final Tag decorated) {
+		if (!decorated.getQName().equals(element.getTagName())) {
+			element = (Element) document.renameNode(element, decorated.getNamespace(), decorated.getQName());
+		}
+		for (final TagAttribute attribute : decorated.getAttributes().getAll()) {
+			final String qName = attribute.getQName();
+			if (qName.equals("xmlns") || qName.startsWith("xmlns:")) {
+				element.setAttributeNS(XMLNS_NAMESPACE, qName, attribute.getValue());
+			} else if (qName.indexOf(':') > 0 && attribute.getNamespace() != null && !attribute.getNamespace().isEmpty()) {
+				element.setAttributeNS(attribute.getNamespace(), qName, attribute.getValue());
+			} else {
+				element.setAttribute(qName, attribute.getValue());
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * Creates facelets tag from the element the same way the facelets
+	 * compiler does.
+	 *
+	 * @param element
+	 *            the element
+	 * @param viewId
+	 *            the view id
+	 * @return the tag
+	 */
+	protected Tag createTag(final Element element, final String viewId) {
+		final Location location = new Location(viewId, -1, -1);
+		final NamedNodeMap attributes = element.getAttributes();
+		final TagAttribute[] tagAttributes = new TagAttribute[attributes.getLength()];
+		for (int i = 0; i < attributes.getLength(); i++) {
+			final Attr attr = (Attr) attributes.item(i);
+			final String localName = attr.getLocalName() == null ? attr.getName() : attr.getLocalName();
+			tagAttributes[i] = new TagAttributeImpl(location, nullToEmpty(attr.getNamespaceURI()), localName, attr.getName(), attr.getValue());
+		}
+		final String localName = element.getLocalName() == null ? element.getTagName() : element.getLocalName();
+		return new Tag(location, nullToEmpty(element.getNamespaceURI()), localName, element.getTagName(), new TagAttributesImpl(tagAttributes));
+	}
+
+	/**
+	 * Decorate all the facelets in the source folder into the target folder,
+	 * and write the pre-decorated views list.
+	 *
+	 * @param sourceFolder
+	 *            the webapp source folder
+	 * @param targetFolder
+	 *            the target folder
+	 * @return the pre-decorated views
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public List<String> decorate(final File sourceFolder, final File targetFolder) throws IOException {
+		final List<String> views = new ArrayList<>();
+		decorateFolder(sourceFolder, targetFolder, "", views);
+		final File list = new File(targetFolder, "WEB-INF/classes".concat(PRE_DECORATED_VIEWS_LIST));
+		list.getParentFile().mkdirs();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(list), "UTF-8")) {
+			writer.write(FINGERPRINT_PREFIX);
+			writer.write(JKFacesConfigurations.getInstance().getDecorationFingerprint());
+			writer.write("\n");
+			for (final String view : views) {
+				writer.write(view);
+				writer.write("\n");
+			}
+		}
+		return views;
+	}
+
+	/**
+	 * Decorate element and its children.
+	 *
+	 * @param document
+	 *            the document
+	 * @param element
+	 *            the element
+	 * @param viewId
+	 *            the view id
+	 */
+	protected void decorateElement(final Document document, Element element, final String viewId) {
+		final Tag tag = createTag(element, viewId);
+		final Tag decorated = this.decorator.decorate(tag);
+		if (decorated != null && decorated != tag) {
+			element = apply(document, element, decorated);
+		}
+		final NodeList children = element.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			final Node child = children.item(i);
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				decorateElement(document, (Element) child, viewId);
+			}
+		}
+	}
+
+	/**
+	 * Decorate facelet file.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param viewId
+	 *            the view id
+	 * @return true, if the facelet has been decorated
+	 */
+	protected boolean decorateFile(final File source, final File target, final String viewId) {
+		try {
+			final DocumentBuilder builder = this.factory.newDocumentBuilder();
+			final Document document = builder.parse(source);
+			decorateElement(document, document.getDocumentElement(), viewId);
+
+			final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			final DocumentType doctype = document.getDoctype();
+			if (doctype != null) {
+				if (doctype.getPublicId() != null) {
+					transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doctype.getPublicId());
+				}
+				if (doctype.getSystemId() != null) {
+					transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doctype.getSystemId());
+				}
+			}
+			target.getParentFile().mkdirs();
+			try (OutputStream out = new FileOutputStream(target)) {
+				transformer.transform(new DOMSource(document), new StreamResult(out));
+			}
+			return true;
+		} catch (final Exception e) {
+			logger.log(Level.WARNING, "unable to pre-decorate " + viewId + ", it will be decorated at runtime", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Decorate folder.
+	 *
+	 * @param sourceFolder
+	 *            the source folder
+	 * @param targetFolder
+	 *            the target folder
+	 * @param path
+	 *            the path relative to the webapp root
+	 * @param views
+	 *            the pre-decorated views
+	 */
+	private void decorateFolder(final File sourceFolder, final File targetFolder, final String path, final List<String> views) {
+		final File[] files = sourceFolder.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			final String viewId = path.concat("/").concat(file.getName());
+			if (file.isDirectory()) {
+				decorateFolder(file, new File(targetFolder, file.getName()), viewId, views);
+			} else if (file.getName().endsWith(FACELET_EXTENSION)) {
+				if (decorateFile(file, new File(targetFolder, file.getName()), viewId)) {
+					logger.fine("pre-decorated : ".concat(viewId));
+					views.add(viewId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Null to empty.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the string
+	 */
+	private String nullToEmpty(final String value) {
+		return value == null ? "" : value;
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.faces.view.Location;
+import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
+
+import com.sun.faces.facelets.tag.TagAttributeImpl;
+import com.sun.faces.facelets.tag.TagAttributesImpl;
+
+/**
+ * <B>JKTagDecorationCache</B> is a bounded LRU cache of decorated tags, keyed
+ * by the tag structure (namespace, qName and attributes).
+ * <P/>
+ * Structurally identical tags share the same decoration result, if the
+ * cached result has been decorated from another location, it is relocated to
+ * the location of the requested tag, every attribute taking the location of
+ * the source attribute it has been decorated from, so facelets and EL errors
+ * still point to the right line and column.
+ */
+public class JKTagDecorationCache {
+
+	/**
+	 * The cache key, the namespace , qName and the attributes of the source
+	 * tag.
+	 */
+	static final class Key {
+		private final String namespace;
+		private final String qName;
+		private final String[] attributes;
+		private final int hash;
+
+		Key(final Tag tag) {
+			this.namespace = tag.getNamespace();
+			this.qName = tag.getQName();
+			final TagAttribute[] all = tag.getAttributes().getAll();
+			this.attributes = new String[all.length * 3];
+			for (int i = 0; i < all.length; i++) {
+				this.attributes[i * 3] = all[i].getNamespace();
+				this.attributes[i * 3 + 1] = all[i].getQName();
+				this.attributes[i * 3 + 2] = all[i].getValue();
+			}
+			int hash = this.namespace == null ? 0 : this.namespace.hashCode();
+			hash = 31 * hash + this.qName.hashCode();
+			this.hash = 31 * hash + Arrays.hashCode(this.attributes);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.hash == other.hash && this.qName.equals(other.qName)
+					&& (this.namespace == null ? other.namespace == null : this.namespace.equals(other.namespace))
+					&& Arrays.equals(this.attributes, other.attributes);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/**
+	 * The cached decoration result, with the index of the source attribute
+	 * each decorated attribute has been built from (-1 for the attributes
+	 * added by the decoration, located at the tag).
+	 */
+	static final class Entry {
+		private final Tag decorated;
+		private final int[] origins;
+
+		Entry(final Tag source, final Tag decorated) {
+			this.decorated = decorated;
+			final TagAttribute[] sourceAttributes = source.getAttributes().getAll();
+			final TagAttribute[] decoratedAttributes = decorated.getAttributes().getAll();
+			this.origins = new int[decoratedAttributes.length];
+			for (int i = 0; i < decoratedAttributes.length; i++) {
+				this.origins[i] = findOrigin(sourceAttributes, decoratedAttributes[i].getLocation(), i);
+			}
+		}
+
+		/**
+		 * Find the source attribute the decorated attribute has been built
+		 * from, the decorator copies the location of the source attribute.
+		 *
+		 * @param sourceAttributes
+		 *            the source attributes
+		 * @param location
+		 *            the location of the decorated attribute
+		 * @param index
+		 *            the index of the decorated attribute, checked first
+		 * @return the index of the source attribute, or -1
+		 */
+		private static int findOrigin(final TagAttribute[] sourceAttributes, final Location location, final int index) {
+			if (index < sourceAttributes.length && sourceAttributes[index].getLocation() == location) {
+				return index;
+			}
+			for (int i = 0; i < sourceAttributes.length; i++) {
+				if (sourceAttributes[i].getLocation() == location) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/** The Constant DEFAULT_MAX_SIZE. */
+	public static final int DEFAULT_MAX_SIZE = 2000;
+
+	/**
+	 * Checks if both locations points to the same place.
+	 *
+	 * @param first
+	 *            the first
+	 * @param second
+	 *            the second
+	 * @return true, if successful
+	 */
+	static boolean isSameLocation(final Location first, final Location second) {
+		if (first == second) {
+			return true;
+		}
+		if (first == null || second == null) {
+			return false;
+		}
+		return first.getLine() == second.getLine() && first.getColumn() == second.getColumn()
+				&& (first.getPath() == null ? second.getPath() == null : first.getPath().equals(second.getPath()));
+	}
+
+	/**
+	 * Creates copy of the cached decoration at the location of the source
+	 * tag, each attribute is located at the source attribute it has been
+	 * decorated from. Tags and attributes are immutable and carry their
+	 * location, so a copy is needed for every other location, it is still
+	 * cheaper than decorating again.
+	 *
+	 * @param entry
+	 *            the cached entry
+	 * @param tag
+	 *            the source tag
+	 * @return the tag
+	 */
+	static Tag relocate(final Entry entry, final Tag tag) {
+		final Tag decorated = entry.decorated;
+		final Location location = tag.getLocation();
+		if (isSameLocation(decorated.getLocation(), location)) {
+			return decorated;
+		}
+		final TagAttribute[] sourceAttributes = tag.getAttributes().getAll();
+		final TagAttribute[] all = decorated.getAttributes().getAll();
+		final TagAttribute[] attributes = new TagAttribute[all.length];
+		for (int i = 0; i < all.length; i++) {
+			final TagAttribute attr = all[i];
+			final int origin = entry.origins[i];
+			// same structure, so the source attributes are in the same order
+			final Location attributeLocation = origin == -1 ? location : sourceAttributes[origin].getLocation();
+			attributes[i] = new TagAttributeImpl(attributeLocation, attr.getNamespace(), attr.getLocalName(), attr.getQName(), attr.getValue());
+		}
+		return new Tag(location, decorated.getNamespace(), decorated.getLocalName(), decorated.getQName(), new TagAttributesImpl(attributes));
+	}
+
+	/** The max size. */
+	private final int maxSize;
+
+	/** The cache. */
+	private final Map<Key, Entry> cache;
+
+	/** The hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The misses. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Instantiates a new JK tag decoration cache.
+	 */
+	public JKTagDecorationCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Instantiates a new JK tag decoration cache.
+	 *
+	 * @param maxSize
+	 *            the max number of cached tags
+	 */
+	public JKTagDecorationCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				return size() > JKTagDecorationCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Clear the cache and the counters.
+	 */
+	public void clear() {
+		synchronized (this.cache) {
+			this.cache.clear();
+		}
+		this.hits.set(0);
+		this.misses.set(0);
+	}
+
+	/**
+	 * Gets the decoration result of tag with the same structure.
+	 *
+	 * @param tag
+	 *            the source tag
+	 * @return the decorated tag located at the source tag location, or null if
+	 *         not found
+	 */
+	public Tag get(final Tag tag) {
+		return get(new Key(tag), tag);
+	}
+
+	/**
+	 * Gets the decoration result of tag with the same structure, the key is
+	 * kept by the caller to {@link #put(Key, Tag, Tag)} on miss.
+	 *
+	 * @param key
+	 *            the key of the source tag
+	 * @param tag
+	 *            the source tag
+	 * @return the decorated tag located at the source tag location, or null if
+	 *         not found
+	 */
+	Tag get(final Key key, final Tag tag) {
+		final Entry entry;
+		synchronized (this.cache) {
+			entry = this.cache.get(key);
+		}
+		if (entry == null) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return relocate(entry, tag);
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Gets the max size.
+	 *
+	 * @return the max size
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Gets the current number of cached tags.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * Cache the decoration result of the source tag.
+	 *
+	 * @param tag
+	 *            the source tag
+	 * @param decorated
+	 *            the decorated tag
+	 */
+	public void put(final Tag tag, final Tag decorated) {
+		put(new Key(tag), tag, decorated);
+	}
+
+	/**
+	 * Cache the decoration result of the source tag.
+	 *
+	 * @param key
+	 *            the key of the source tag
+	 * @param tag
+	 *            the source tag
+	 * @param decorated
+	 *            the decorated tag
+	 */
+	void put(final Key key, final Tag tag, final Tag decorated) {
+		final Entry entry = new Entry(tag, decorated);
+		synchronized (this.cache) {
+			this.cache.put(key, entry);
+		}
+	}
+
+}
@@ -15,16 +15,29 @@
  */
 package com.jk.faces.decorators;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.faces.context.FacesContext;
+import javax.faces.view.Location;
 import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
 import javax.faces.view.facelets.TagDecorator;
 
 import com.jk.annotations.Author;
 import com.jk.faces.config.JKFacesConfigurations;
 import com.jk.faces.config.JKNamespace;
+import com.jk.faces.config.JKTagClassification;
 import com.jk.faces.config.JKTagMapping;
+import com.jk.faces.resources.JKResourceFingerprints;
 import com.jk.faces.tags.JKTagAttributeWrapper;
 import com.jk.faces.tags.JKTagWrapper;
 import com.jk.util.ObjectUtil;
@@ -43,9 +56,58 @@ public final class JKTagDecorator implements TagDecorator {
 
 	public final static JKTagDecorator Instance = new JKTagDecorator();
 
+	/**
+	 * Context param to enable/disable skipping the views pre-decorated at
+	 * build time by {@link JKFaceletPreDecorator}, default is true.
+	 */
+	public static final String PRE_DECORATED_VIEWS_PARAM = "com.jk.faces.PRE_DECORATED_VIEWS";
+
 	/** The logger. */
 	Logger logger = Logger.getLogger(getClass().getName());
 
+	/**
+	 * The decoration cache with the configurations snapshot it is filled
+	 * from, replaced as a whole when the configurations are reloaded.
+	 */
+	static final class SnapshotCache {
+		private final JKFacesConfigurations config;
+		private final JKTagDecorationCache cache;
+
+		SnapshotCache(final JKFacesConfigurations config, final JKTagDecorationCache cache) {
+			this.config = config;
+			this.cache = cache;
+		}
+	}
+
+	/**
+	 * The result of checking the pre-decorated views against a
+	 * configurations snapshot.
+	 */
+	static final class PreDecorationCheck {
+		private final JKFacesConfigurations config;
+		private final boolean valid;
+
+		PreDecorationCheck(final JKFacesConfigurations config, final boolean valid) {
+			this.config = config;
+			this.valid = valid;
+		}
+	}
+
+	/** The decoration cache of the current configurations snapshot. */
+	private volatile SnapshotCache snapshotCache = new SnapshotCache(null, new JKTagDecorationCache());
+
+	/** The views pre-decorated at build time, loaded once. */
+	private volatile Set<String> preDecoratedViews;
+
+	/** The decoration fingerprint the views have been pre-decorated with. */
+	private volatile String preDecoratedFingerprint;
+
+	/** The last check of the pre-decorated views. */
+	private volatile PreDecorationCheck preDecorationCheck;
+
+	/** The metrics. */
+	private final JKDecorationMetrics metrics = JKDecorationMetrics.getInstance();
+
 	/**
 	 * Instantiates a new JK tag decorator.
 	 */
@@ -57,15 +119,22 @@ public final class JKTagDecorator implements TagDecorator {
 	 *
 	 * @param wrapper
 	 *            the tag
-	 * @return the tag
+	 * @param config
+	 *            the configurations snapshot
 	 */
-	protected void addMissingNamespaces(final JKTagWrapper wrapper) {
-		final JKFacesConfigurations config = JKFacesConfigurations.getInstance();
-
+	protected void addMissingNamespaces(final JKTagWrapper wrapper, final JKFacesConfigurations config) {
 		final List<JKNamespace> namespaces = config.getNamespaces();
+		final boolean recording = this.metrics.isEnabled();
+		int injected = 0;
 		for (final JKNamespace namespace : namespaces) {
+			if (recording && wrapper.findAttribute(namespace.getPrefix()) == null) {
+				injected++;
+			}
 			wrapper.addAttribue(namespace.getPrefix(), namespace.getUrl());
 		}
+		if (recording) {
+			this.metrics.recordNamespaceInjections(wrapper.getTag().getQName(), injected);
+		}
 		// final List<JKNamespace> copy = new Vector(config.getNamespaces());
 		// final TagAttributes attributes = wrapper.getAttributes();
 		// final TagAttribute[] all = attributes.getAll();
@@ -110,46 +179,438 @@ public final class JKTagDecorator implements TagDecorator {
 	 */
 	@Override
 	public Tag decorate(final Tag tag) {
+		if (!this.metrics.isEnabled()) {
+			return doDecorate(tag);
+		}
+		final long start = System.nanoTime();
+		final Tag decorated = doDecorate(tag);
+		this.metrics.recordDecoration(tag.getQName(), System.nanoTime() - start);
+		return decorated;
+	}
+
+	/**
+	 * Decorate the tag.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @return the decorated tag
+	 */
+	private Tag doDecorate(final Tag tag) {
+		// use the same snapshot for the whole decoration, even if the
+		// configurations reloaded meanwhile
+		final JKFacesConfigurations config = JKFacesConfigurations.getInstance();
+		if (isPreDecorated(tag, config) || !isDecorationRequired(tag, config)) {
+			if (this.metrics.isEnabled()) {
+				this.metrics.recordPassThrough(tag.getQName());
+			}
+			// return the same instance rather than null, to keep other
+			// decorators (e.g. the JSF default one) out as before
+			return tag;
+		}
+		final JKTagDecorationCache cache = getCache(config);
+		final JKTagDecorationCache.Key key = cache == null ? null : new JKTagDecorationCache.Key(tag);
+		final Tag cached = cache == null ? null : cache.get(key, tag);
+		if (cached != null) {
+			if (this.metrics.isEnabled()) {
+				this.metrics.recordCacheHit(tag.getQName());
+			}
+			return cached;
+		}
+		final JKTagClassification classification = config.getTagClassification();
 		final JKTagWrapper wrapper = new JKTagWrapper(tag);
 		this.logger.fine("decorate tag :".concat(tag.getQName()));
-		if (wrapper.isHtmlTag()) {
+		if (wrapper.isHtmlTag(classification)) {
 			this.logger.fine("add missing namespaces");
-			addMissingNamespaces(wrapper);
+			addMissingNamespaces(wrapper, config);
 		} else {
 			this.logger.fine("handle mapping for tag: " + tag.getQName());
-			handleMapping(wrapper);
-			if (wrapper.isUrlable()) {
+			handleMapping(wrapper, config);
+			if (wrapper.isUrlable(classification)) {
 				this.logger.fine("fixing links:" + tag.getQName());
-				fixLiks(wrapper);
+				fixLiks(wrapper, classification);
 			}
 		}
-		return wrapper.buildTag();
+		final Tag decorated = wrapper.buildTag();
+		if (cache != null) {
+			// the cache belongs to the snapshot used for the decoration, so a
+			// reload meanwhile can't leave a stale entry in the new cache
+			cache.put(key, tag, decorated);
+		}
+		return decorated;
 	}
 
 	/**
+	 * Gets the decoration cache of the configurations snapshot, a new empty
+	 * cache is swapped in when the configurations have been reloaded.
+	 *
+	 * @param config
+	 *            the configurations snapshot used for the decoration
+	 * @return the cache, or null if the snapshot is not the current one
+	 *         anymore
+	 */
+	private JKTagDecorationCache getCache(final JKFacesConfigurations config) {
+		SnapshotCache current = this.snapshotCache;
+		if (current.config == config) {
+			return current.cache;
+		}
+		synchronized (this) {
+			current = this.snapshotCache;
+			if (current.config == config) {
+				return current.cache;
+			}
+			if (config != JKFacesConfigurations.getInstance()) {
+				// decorating with an outdated snapshot, don't cache
+				return null;
+			}
+			current = new SnapshotCache(config, new JKTagDecorationCache(current.cache.getMaxSize()));
+			this.snapshotCache = current;
+			return current.cache;
+		}
+	}
+
+	/**
+	 * Gets the decoration cache of the current configurations snapshot.
+	 *
+	 * @return the cache
+	 */
+	public JKTagDecorationCache getCache() {
+		return this.snapshotCache.cache;
+	}
+
+	/**
+	 * Prefix the local links with the context path, static resources are
+	 * rewritten to fingerprinted urls if enabled.
 	 *
 	 * @param wrapper
 	 */
 	protected void fixLiks(final JKTagWrapper wrapper) {
-		final List<JKTagAttributeWrapper> links = wrapper.getLinksAttributes();
+		fixLiks(wrapper, JKFacesConfigurations.getInstance().getTagClassification());
+	}
+
+	/**
+	 * Prefix the local links of the attributes classified as links with the
+	 * context path, static resources are rewritten to fingerprinted urls if
+	 * enabled. The candidates of <code>srcset</code> are fixed one by one.
+	 *
+	 * @param wrapper
+	 *            the wrapper
+	 * @param classification
+	 *            the classification
+	 */
+	protected void fixLiks(final JKTagWrapper wrapper, final JKTagClassification classification) {
+		final List<JKTagAttributeWrapper> links = wrapper.getLinksAttributes(classification);
+		int fixed = 0;
 		for (final JKTagAttributeWrapper link : links) {
-			if (link.getValue().startsWith("/") || link.getValue().startsWith("#")) {
-				link.setValue("#{request.contextPath}/".concat(link.getValue()));
+			if (isSrcset(link.getLocalName())) {
+				final String value = fixSrcset(link.getValue());
+				if (!value.equals(link.getValue())) {
+					link.setValue(value);
+					fixed++;
+				}
+			} else if (isFixableLink(link.getValue())) {
+				link.setValue(fixLink(link.getValue()));
+				fixed++;
 			}
 		}
+		if (this.metrics.isEnabled()) {
+			this.metrics.recordLinkRewrites(wrapper.getTag().getQName(), fixed);
+		}
 	}
 
 	/**
+	 * Prefix single local link with the context path, or rewrite it to
+	 * fingerprinted url.
 	 *
-	 * @param wrapper
-	 * @return
+	 * @param value
+	 *            the link
+	 * @return the fixed link
 	 */
-	protected void handleMapping(final JKTagWrapper wrapper) {
-		final JKFacesConfigurations config = JKFacesConfigurations.getInstance();
+	protected String fixLink(final String value) {
+		final JKResourceFingerprints fingerprints = JKResourceFingerprints.getCurrentInstance();
+		final String fingerprinted = fingerprints == null ? null : fingerprints.toFingerprintedUrl(value);
+		return "#{request.contextPath}/".concat(fingerprinted == null ? value : fingerprinted);
+	}
+
+	/**
+	 * Fix the local urls of <code>srcset</code> value (e.g.
+	 * <code>/img/a.png 1x, /img/a@2x.png 2x</code>), keeping the descriptors.
+	 *
+	 * @param value
+	 *            the srcset value
+	 * @return the fixed value, or the same value if nothing to fix
+	 */
+	protected String fixSrcset(final String value) {
+		if (!isFixableSrcset(value)) {
+			return value;
+		}
+		final StringBuilder buf = new StringBuilder();
+		for (final String candidate : value.split(",")) {
+			final String trimmed = candidate.trim();
+			if (buf.length() > 0) {
+				buf.append(", ");
+			}
+			final int space = indexOfWhitespace(trimmed);
+			final String url = space == -1 ? trimmed : trimmed.substring(0, space);
+			buf.append(isFixableLink(url) && !url.startsWith("#") ? fixLink(url) : url);
+			if (space != -1) {
+				buf.append(trimmed.substring(space));
+			}
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Index of the first whitespace.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the index, or -1
+	 */
+	private static int indexOfWhitespace(final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (Character.isWhitespace(value.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks if any of the <code>srcset</code> candidates is local link.
+	 *
+	 * @param value
+	 *            the srcset value
+	 * @return true, if is fixable srcset
+	 */
+	protected boolean isFixableSrcset(final String value) {
+		if (value.contains("#{") || value.contains("${")) {
+			// expressions could contain commas, leave it to the page author
+			return false;
+		}
+		for (final String candidate : value.split(",")) {
+			if (candidate.trim().startsWith("/")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the attribute is <code>srcset</code>, which holds list of
+	 * urls rather than single one.
+	 *
+	 * @param attributeLocalName
+	 *            the attribute local name
+	 * @return true, if is srcset
+	 */
+	protected boolean isSrcset(final String attributeLocalName) {
+		return "srcset".equals(attributeLocalName);
+	}
+
+	/**
+	 * Checks if the link value should be prefixed with the context path.
+	 *
+	 * @param value
+	 *            the link value
+	 * @return true, if is fixable link
+	 */
+	protected boolean isFixableLink(final String value) {
+		return value.startsWith("/") || value.startsWith("#");
+	}
+
+	/**
+	 * Gets the views pre-decorated at build time, loaded once a faces context
+	 * is available.
+	 *
+	 * @return the pre decorated views
+	 */
+	protected Set<String> getPreDecoratedViews() {
+		Set<String> views = this.preDecoratedViews;
+		if (views == null) {
+			views = loadPreDecoratedViews();
+			if (views == null) {
+				// no faces context yet, load again on next call
+				return Collections.emptySet();
+			}
+			this.preDecoratedViews = views;
+		}
+		return views;
+	}
 
+	/**
+	 * Checks if the tag belongs to a view that has been pre-decorated at build
+	 * time.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @return true, if is pre decorated
+	 */
+	protected boolean isPreDecorated(final Tag tag) {
+		return isPreDecorated(tag, JKFacesConfigurations.getInstance());
+	}
+
+	/**
+	 * Checks if the tag belongs to a view that has been pre-decorated at build
+	 * time with the same mappings of the given configurations.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @param config
+	 *            the configurations snapshot
+	 * @return true, if is pre decorated
+	 */
+	protected boolean isPreDecorated(final Tag tag, final JKFacesConfigurations config) {
+		final Location location = tag.getLocation();
+		if (location == null || location.getPath() == null) {
+			return false;
+		}
+		final Set<String> views = getPreDecoratedViews();
+		return !views.isEmpty() && views.contains(location.getPath()) && isPreDecorationValid(config);
+	}
+
+	/**
+	 * Checks if the views have been pre-decorated with the same decoration
+	 * fingerprint of the configurations, checked once per configurations
+	 * snapshot.
+	 *
+	 * @param config
+	 *            the configurations snapshot
+	 * @return true, if is pre decoration valid
+	 */
+	boolean isPreDecorationValid(final JKFacesConfigurations config) {
+		final PreDecorationCheck check = this.preDecorationCheck;
+		if (check != null && check.config == config) {
+			return check.valid;
+		}
+		final String fingerprint = config.getDecorationFingerprint();
+		final boolean valid = this.preDecoratedFingerprint != null && this.preDecoratedFingerprint.equals(fingerprint);
+		if (!valid) {
+			this.logger.warning(String.format(
+					"the views have been pre-decorated with different tags mappings (%s, runtime %s), they will be decorated at runtime",
+					this.preDecoratedFingerprint, fingerprint));
+		}
+		this.preDecorationCheck = new PreDecorationCheck(config, valid);
+		return valid;
+	}
+
+	/**
+	 * Load the list of pre-decorated views generated by
+	 * {@link JKFaceletPreDecorator}, if enabled.
+	 *
+	 * @return the views, or null if there is no faces context to read the
+	 *         context params from
+	 */
+	protected Set<String> loadPreDecoratedViews() {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		if (context == null) {
+			return null;
+		}
+		final String enabled = context.getExternalContext().getInitParameter(PRE_DECORATED_VIEWS_PARAM);
+		if (enabled != null && !Boolean.parseBoolean(enabled)) {
+			return Collections.emptySet();
+		}
+		final InputStream in = JKTagDecorator.class.getResourceAsStream(JKFaceletPreDecorator.PRE_DECORATED_VIEWS_LIST);
+		if (in == null) {
+			return Collections.emptySet();
+		}
+		try {
+			final Set<String> views = readPreDecoratedViews(in);
+			this.logger.info(views.size() + " pre-decorated views found");
+			return views;
+		} catch (final IOException e) {
+			this.logger.log(Level.WARNING, "unable to load pre-decorated views, all views will be decorated", e);
+			return Collections.emptySet();
+		}
+	}
+
+	/**
+	 * Read the list of pre-decorated views and the decoration fingerprint they
+	 * have been decorated with, the stream is closed.
+	 *
+	 * @param in
+	 *            the list content
+	 * @return the views
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	Set<String> readPreDecoratedViews(final InputStream in) throws IOException {
+		final Set<String> views = new HashSet<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(JKFaceletPreDecorator.FINGERPRINT_PREFIX)) {
+					this.preDecoratedFingerprint = line.substring(JKFaceletPreDecorator.FINGERPRINT_PREFIX.length()).trim();
+				} else if (!line.trim().isEmpty()) {
+					views.add(line.trim());
+				}
+			}
+		}
+		return Collections.unmodifiableSet(views);
+	}
+
+	/**
+	 * Classify the tag without wrapping it, using the precompiled mapping
+	 * index and the urlable tags, a tag that is not html , has no effective
+	 * mapping and no link to fix will be returned as is.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @param config
+	 *            the configurations snapshot
+	 * @return true, if decoration is required
+	 */
+	protected boolean isDecorationRequired(final Tag tag, final JKFacesConfigurations config) {
+		final String localName = tag.getLocalName();
+		final JKTagClassification classification = config.getTagClassification();
+		if (classification.isHtmlTag(localName)) {
+			return true;
+		}
+		final JKTagMapping mapping = config.getTagMappingIndex().find(tag);
+		if (mapping != null && !isIdentityMapping(tag, mapping)) {
+			return true;
+		}
+		if (classification.isUrlable(localName)) {
+			for (final TagAttribute attribute : tag.getAttributes().getAll()) {
+				if (classification.isLinkAttribute(attribute.getLocalName())) {
+					if (isSrcset(attribute.getLocalName()) ? isFixableSrcset(attribute.getValue()) : isFixableLink(attribute.getValue())) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if applying the mapping will leave the tag as is (e.g.
+	 * <code>link</code> to <code>link</code>).
+	 *
+	 * @param tag
+	 *            the tag
+	 * @param mapping
+	 *            the mapping
+	 * @return true, if is identity mapping
+	 */
+	protected boolean isIdentityMapping(final Tag tag, final JKTagMapping mapping) {
+		return mapping.getNameSpaceLetter() == null && mapping.getTargetQName().equals(tag.getQName())
+				&& mapping.getTargetLocalName().equals(tag.getLocalName());
+	}
+
+	/**
+	 *
+	 * @param wrapper
+	 * @param config
+	 *            the configurations snapshot
+	 */
+	protected void handleMapping(final JKTagWrapper wrapper, final JKFacesConfigurations config) {
 		final JKTagMapping mapping = config.findTagMapping(wrapper);
+		if (this.metrics.isEnabled()) {
+			this.metrics.recordMapping(wrapper.getTag().getQName(), mapping != null);
+		}
 		if (mapping != null) {
-			this.logger.info("mapping found : " + ObjectUtil.toString(mapping));
+			if (this.logger.isLoggable(Level.INFO)) {
+				this.logger.info("mapping found : " + ObjectUtil.toString(mapping));
+			}
 			final String nameSpaceLetter = mapping.getNameSpaceLetter();
 			if (nameSpaceLetter != null) {
 				final JKNamespace namespace = config.getNamespaceByLetter(nameSpaceLetter);
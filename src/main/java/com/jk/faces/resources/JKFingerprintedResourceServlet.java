@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <B>JKFingerprintedResourceServlet</B> serves the fingerprinted urls built by
+ * {@link JKResourceFingerprints} (<code>/jk-static/&lt;hash&gt;/path</code>).
+ * Only the resources fingerprinted by the decorated pages are served, any
+ * other path is not found.
+ * <P/>
+ * If the hash matches the current content, the resource is served as
+ * immutable for one year, otherwise (old page after a deploy) the current
+ * content is served without caching. The hash is used as ETag in both cases.
+ */
+public class JKFingerprintedResourceServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The Constant IMMUTABLE. */
+	private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+	/** The Constant NO_CACHE. */
+	private static final String NO_CACHE = "no-cache";
+
+	@Override
+	protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+		serve(request, response, true);
+	}
+
+	@Override
+	protected void doHead(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+		serve(request, response, false);
+	}
+
+	/**
+	 * Serve the resource.
+	 *
+	 * @param request
+	 *            the request
+	 * @param response
+	 *            the response
+	 * @param body
+	 *            write the content or only the headers
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	protected void serve(final HttpServletRequest request, final HttpServletResponse response, final boolean body) throws IOException {
+		final JKResourceFingerprints fingerprints = JKResourceFingerprints.getInstance(getServletContext());
+		final String pathInfo = request.getPathInfo();
+		final int index = pathInfo == null ? -1 : pathInfo.indexOf('/', 1);
+		if (fingerprints == null || index == -1) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		final String requestedHash = pathInfo.substring(1, index);
+		final String path = pathInfo.substring(index);
+		final String hash = fingerprints.findFingerprint(path);
+		if (hash == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		final String etag = "\"".concat(hash).concat("\"");
+		response.setHeader("ETag", etag);
+		response.setHeader("Cache-Control", hash.equals(requestedHash) ? IMMUTABLE : NO_CACHE);
+		if (etag.equals(request.getHeader("If-None-Match"))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		final String mimeType = getServletContext().getMimeType(path);
+		response.setContentType(mimeType == null ? "application/octet-stream" : mimeType);
+		if (!body) {
+			return;
+		}
+		try (InputStream in = getServletContext().getResourceAsStream(path)) {
+			if (in == null) {
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+			final OutputStream out = response.getOutputStream();
+			final byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+		}
+	}
+
+}
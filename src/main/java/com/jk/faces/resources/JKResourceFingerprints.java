@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.context.FacesContext;
+import javax.servlet.ServletContext;
+
+/**
+ * <B>JKResourceFingerprints</B> calculates the content hash of the local
+ * static resources (css, js, images and fonts) once, and builds fingerprinted
+ * urls for them, served by {@link JKFingerprintedResourceServlet} with far
+ * future caching.
+ * <P/>
+ * Only the resources fingerprinted by {@link #toFingerprintedUrl(String)}
+ * (i.e. linked from a decorated page) are served, so the servlet could not be
+ * used to reach the other resources of the webapp by passing their security
+ * constraints and filters. The hashes are recalculated when the last modified
+ * time of the resource changes (exploded deployments).
+ * <P/>
+ * Disabled by default, enabled by the {@link #RESOURCE_FINGERPRINT_PARAM}
+ * context param.
+ */
+public class JKResourceFingerprints {
+
+	/**
+	 * The hash of a resource and the last modified time it was calculated
+	 * for.
+	 */
+	static final class Fingerprint {
+		private final String hash;
+		private final long lastModified;
+
+		Fingerprint(final String hash, final long lastModified) {
+			this.hash = hash;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/** Context param to enable the resources fingerprinting, default false. */
+	public static final String RESOURCE_FINGERPRINT_PARAM = "com.jk.faces.RESOURCE_FINGERPRINT";
+
+	/** The path of the fingerprinted resources servlet. */
+	public static final String SERVLET_PATH = "/jk-static";
+
+	/** The extensions of the static resources. */
+	public static final Set<String> STATIC_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("css", "js", "png",
+			"jpg", "jpeg", "gif", "svg", "ico", "webp", "woff", "woff2", "ttf", "eot", "otf", "map")));
+
+	/** The servlet context attribute. */
+	private static final String ATTRIBUTE = JKResourceFingerprints.class.getName();
+
+	/** The hash length in hex chars. */
+	private static final int HASH_LENGTH = 16;
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKResourceFingerprints.class.getName());
+
+	/**
+	 * Gets the fingerprints of the current faces context.
+	 *
+	 * @return the fingerprints, or null if disabled or not in JSF request
+	 */
+	public static JKResourceFingerprints getCurrentInstance() {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		if (context == null || !(context.getExternalContext().getContext() instanceof ServletContext)) {
+			return null;
+		}
+		return getInstance((ServletContext) context.getExternalContext().getContext());
+	}
+
+	/**
+	 * Gets the fingerprints of the servlet context.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the fingerprints, or null if disabled
+	 */
+	public static JKResourceFingerprints getInstance(final ServletContext context) {
+		JKResourceFingerprints fingerprints = (JKResourceFingerprints) context.getAttribute(ATTRIBUTE);
+		if (fingerprints == null) {
+			synchronized (context) {
+				fingerprints = (JKResourceFingerprints) context.getAttribute(ATTRIBUTE);
+				if (fingerprints == null) {
+					fingerprints = new JKResourceFingerprints(context,
+							Boolean.parseBoolean(context.getInitParameter(RESOURCE_FINGERPRINT_PARAM)));
+					context.setAttribute(ATTRIBUTE, fingerprints);
+				}
+			}
+		}
+		return fingerprints.isEnabled() ? fingerprints : null;
+	}
+
+	/**
+	 * Checks if the path is a local static resource that could be served by
+	 * {@link JKFingerprintedResourceServlet}. Only normalized paths are
+	 * accepted, without empty, <code>.</code> or <code>..</code> segments,
+	 * path parameters (<code>;</code>) or back slashes, so the
+	 * <code>WEB-INF</code> and <code>META-INF</code> check could not be
+	 * bypassed.
+	 *
+	 * @param path
+	 *            the path
+	 * @return true, if is static
+	 */
+	public static boolean isStatic(final String path) {
+		if (!path.startsWith("/") || path.contains("//") || path.contains("/./") || path.endsWith("/.") || path.contains("..")
+				|| path.indexOf(';') != -1 || path.indexOf('\\') != -1 || path.contains("#{") || path.contains("${")
+				|| path.indexOf('?') != -1) {
+			return false;
+		}
+		final String upper = path.toUpperCase(Locale.ENGLISH);
+		if (upper.startsWith("/WEB-INF/") || upper.startsWith("/META-INF/")) {
+			return false;
+		}
+		final int dot = path.lastIndexOf('.');
+		return dot > path.lastIndexOf('/') && STATIC_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+	}
+
+	/** The context. */
+	private final ServletContext context;
+
+	/** The enabled. */
+	private final boolean enabled;
+
+	/** path -> fingerprint, only the fingerprinted resources. */
+	private final ConcurrentMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new JK resource fingerprints.
+	 *
+	 * @param context
+	 *            the context
+	 * @param enabled
+	 *            the enabled
+	 */
+	public JKResourceFingerprints(final ServletContext context, final boolean enabled) {
+		this.context = context;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Calculate the content hash of the resource.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the hash, or null if not found
+	 */
+	protected String calculateHash(final String path) {
+		try (InputStream in = this.context.getResourceAsStream(path)) {
+			if (in == null) {
+				return null;
+			}
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			final byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, count);
+			}
+			final StringBuilder buf = new StringBuilder();
+			for (final byte b : digest.digest()) {
+				buf.append(String.format("%02x", b));
+			}
+			return buf.substring(0, HASH_LENGTH);
+		} catch (final IOException | NoSuchAlgorithmException e) {
+			logger.log(Level.WARNING, "unable to fingerprint resource : ".concat(path), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the content hash of a resource fingerprinted before by
+	 * {@link #toFingerprintedUrl(String)}, recalculated only if the resource
+	 * has been modified since.
+	 *
+	 * @param path
+	 *            the path of the resource in the webapp
+	 * @return the fingerprint, or null if the resource has not been
+	 *         fingerprinted or no more found
+	 */
+	public String findFingerprint(final String path) {
+		final Fingerprint fingerprint = this.fingerprints.get(path);
+		if (fingerprint == null) {
+			return null;
+		}
+		return getFingerprint(path, fingerprint);
+	}
+
+	/**
+	 * Gets the content hash of the resource, calculated once per last
+	 * modified time, the resource is then served by
+	 * {@link JKFingerprintedResourceServlet}.
+	 *
+	 * @param path
+	 *            the path of the resource in the webapp
+	 * @return the fingerprint, or null if not static resource or not found
+	 */
+	public String getFingerprint(final String path) {
+		if (!isStatic(path)) {
+			return null;
+		}
+		return getFingerprint(path, this.fingerprints.get(path));
+	}
+
+	/**
+	 * Gets the content hash of the resource, using the cached fingerprint if
+	 * the resource has not been modified.
+	 *
+	 * @param path
+	 *            the path
+	 * @param cached
+	 *            the cached fingerprint, or null
+	 * @return the hash, or null if not found
+	 */
+	private String getFingerprint(final String path, final Fingerprint cached) {
+		final long lastModified = getLastModified(path);
+		if (cached != null && cached.lastModified == lastModified) {
+			return cached.hash;
+		}
+		final String hash = calculateHash(path);
+		if (hash == null) {
+			if (cached != null) {
+				this.fingerprints.remove(path, cached);
+			}
+			return null;
+		}
+		this.fingerprints.put(path, new Fingerprint(hash, lastModified));
+		return hash;
+	}
+
+	/**
+	 * Gets the last modified time of the resource, 0 if it is not a file
+	 * (packed war or jar), since it could not change without a redeploy then.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the last modified
+	 */
+	protected long getLastModified(final String path) {
+		final String realPath = this.context.getRealPath(path);
+		return realPath == null ? 0 : new File(realPath).lastModified();
+	}
+
+	/**
+	 * Gets the context.
+	 *
+	 * @return the context
+	 */
+	public ServletContext getServletContext() {
+		return this.context;
+	}
+
+	/**
+	 * Checks if is enabled.
+	 *
+	 * @return true, if is enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Builds the fingerprinted url of the resource, relative to the context
+	 * path (e.g. <code>jk-static/0a1b2c3d4e5f6a7b/css/app.css</code>).
+	 *
+	 * @param path
+	 *            the path of the resource in the webapp
+	 * @return the fingerprinted url, or null if not static resource or not
+	 *         found
+	 */
+	public String toFingerprintedUrl(final String path) {
+		final String hash = getFingerprint(path);
+		if (hash == null) {
+			return null;
+		}
+		return SERVLET_PATH.substring(1).concat("/").concat(hash).concat(path);
+	}
+
+}
@@ -26,6 +26,8 @@ import javax.faces.view.facelets.TagAttributes;
 
 import org.jboss.logging.Logger;
 
+import com.jk.faces.config.JKFacesConfigurations;
+import com.jk.faces.config.JKTagClassification;
 import com.jk.util.JKKeyValue;
 import com.jk.util.ObjectUtil;
 import com.sun.faces.facelets.tag.TagAttributeImpl;
@@ -33,8 +35,63 @@ import com.sun.faces.facelets.tag.TagAttributesImpl;
 
 public class JKTagWrapper {
 	static Logger logger = Logger.getLogger(JKTagWrapper.class.getName());
+	/**
+	 * @deprecated not used anymore, configure the <code>urlable-tags</code>
+	 *             in <code>jk-faces-config.xml</code>.
+	 */
+	@Deprecated
 	public static String URLABLE_TAGS = "img,script,a,link";
+
+	/**
+	 * @deprecated not used anymore, configure the
+	 *             <code>link-attributes</code> in
+	 *             <code>jk-faces-config.xml</code>.
+	 */
+	@Deprecated
 	public static String LINKS_ATTRIBUTES = "src,href";
+
+	/**
+	 * Gets the configured tag classification.
+	 *
+	 * @return the classification
+	 */
+	private static JKTagClassification getClassification() {
+		return JKFacesConfigurations.getInstance().getTagClassification();
+	}
+
+	/**
+	 * Checks if the attribute with the given local name holds a link.
+	 *
+	 * @param attributeLocalName
+	 *            the attribute local name
+	 * @return true, if is link attribute
+	 */
+	public static boolean isLinkAttribute(final String attributeLocalName) {
+		return getClassification().isLinkAttribute(attributeLocalName);
+	}
+
+	/**
+	 * Checks if the tag with the given local name could hold links.
+	 *
+	 * @param localName
+	 *            the local name
+	 * @return true, if is urlable
+	 */
+	public static boolean isUrlable(final String localName) {
+		return getClassification().isUrlable(localName);
+	}
+
+	/**
+	 * Checks if the tag with the given local name is the html root tag.
+	 *
+	 * @param localName
+	 *            the local name
+	 * @return true, if is html tag
+	 */
+	public static boolean isHtmlTag(final String localName) {
+		return getClassification().isHtmlTag(localName);
+	}
+
 	private Tag tag;
 	private String localName;
 	private Location location;
@@ -82,9 +139,11 @@ public class JKTagWrapper {
 	}
 
 	public Tag buildTag() {
-		logger.info("old Tag:" + ObjectUtil.toString(this.tag));
 		final Tag tag = new Tag(getLocation(), getNamespace(), getLocalName(), getqName(), buildAttribues());
-		logger.info("New Tag:" + ObjectUtil.toString(tag));
+		if (logger.isInfoEnabled()) {
+			logger.info("old Tag:" + ObjectUtil.toString(this.tag));
+			logger.info("New Tag:" + ObjectUtil.toString(tag));
+		}
 		return tag;
 	}
 
@@ -106,9 +165,21 @@ public class JKTagWrapper {
 	}
 
 	public List<JKTagAttributeWrapper> getLinksAttributes() {
+		return getLinksAttributes(getClassification());
+	}
+
+	/**
+	 * Gets the attributes that holds links according to the given
+	 * classification.
+	 *
+	 * @param classification
+	 *            the classification
+	 * @return the links attributes
+	 */
+	public List<JKTagAttributeWrapper> getLinksAttributes(final JKTagClassification classification) {
 		final List<JKTagAttributeWrapper> attrs = new Vector<>();
 		for (final JKTagAttributeWrapper attr : this.attributesList) {
-			if (LINKS_ATTRIBUTES.contains(attr.getLocalName())) {
+			if (classification.isLinkAttribute(attr.getLocalName())) {
 				attrs.add(attr);
 			}
 		}
@@ -136,11 +207,19 @@ public class JKTagWrapper {
 	}
 
 	public boolean isHtmlTag() {
-		return getLocalName().equals("html");
+		return isHtmlTag(getLocalName());
+	}
+
+	public boolean isHtmlTag(final JKTagClassification classification) {
+		return classification.isHtmlTag(getLocalName());
 	}
 
 	public boolean isUrlable() {
-		return URLABLE_TAGS.contains(getLocalName());
+		return isUrlable(getLocalName());
+	}
+
+	public boolean isUrlable(final JKTagClassification classification) {
+		return classification.isUrlable(getLocalName());
 	}
 
 	public void setAttributeValue(final String name, final String value) {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import javax.faces.component.UIInput;
+import javax.faces.context.FacesContext;
+import javax.faces.event.AbortProcessingException;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+import javax.faces.event.ValueChangeListener;
+
+/**
+ * <B>JKChangeTrackingInstaller</B> attaches {@link JKTrackingValueChangeListener}
+ * to every input added to the view, if the
+ * {@link JKViewChangeTracker#VIEW_CHANGE_TRACKING_PARAM} context param is
+ * true. Registered for <code>PostAddToViewEvent</code> of
+ * <code>UIInput</code> in <code>faces-config.xml</code>.
+ */
+public class JKChangeTrackingInstaller implements SystemEventListener {
+
+	/** The enabled, read once per application. */
+	private volatile Boolean enabled;
+
+	@Override
+	public boolean isListenerForSource(final Object source) {
+		if (!(source instanceof UIInput)) {
+			return false;
+		}
+		Boolean enabled = this.enabled;
+		if (enabled == null) {
+			enabled = JKViewChangeTracker.isEnabled(FacesContext.getCurrentInstance());
+			this.enabled = enabled;
+		}
+		return enabled;
+	}
+
+	@Override
+	public void processEvent(final SystemEvent event) throws AbortProcessingException {
+		final UIInput input = (UIInput) event.getSource();
+		// the tree is rebuilt on postbacks, the listener could be restored
+		// already
+		for (final ValueChangeListener listener : input.getValueChangeListeners()) {
+			if (listener instanceof JKTrackingValueChangeListener) {
+				return;
+			}
+		}
+		input.addValueChangeListener(new JKTrackingValueChangeListener());
+	}
+
+}
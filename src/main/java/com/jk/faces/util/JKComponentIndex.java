@@ -0,0 +1,327 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.faces.component.TransientStateHelper;
+import javax.faces.component.NamingContainer;
+import javax.faces.component.UIComponent;
+import javax.faces.component.UINamingContainer;
+import javax.faces.component.UIViewRoot;
+import javax.faces.component.visit.VisitCallback;
+import javax.faces.component.visit.VisitContext;
+import javax.faces.component.visit.VisitHint;
+import javax.faces.component.visit.VisitResult;
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKComponentIndex</B> indexes the components of a view by client id, by
+ * id and by type, all collected in a single tree walk.
+ * <P/>
+ * Enabled by the {@link #COMPONENT_INDEX_PARAM} context param, the index of
+ * the current view is built lazily and kept in the transient state of the
+ * view root, so it lives as long as the view root instance and is never saved
+ * with the view state; with partial state saving the view root is rebuilt on
+ * each postback, so the index pays off only for views that do many lookups
+ * per request. It is dropped by {@link JKComponentIndexInvalidator} when a
+ * component is added to or removed from that view, and rebuilt on the next
+ * lookup. When disabled, {@link #getInstance(FacesContext)} builds a new
+ * index on each call.
+ * <P/>
+ * Iterating components (e.g. data tables) are indexed once, not per row.
+ */
+public class JKComponentIndex implements VisitCallback {
+
+	/** The context param that enables caching the index in the view root. */
+	public static final String COMPONENT_INDEX_PARAM = "com.jk.faces.COMPONENT_INDEX";
+
+	/** The view root transient state key. */
+	private static final String KEY = JKComponentIndex.class.getName();
+
+	/**
+	 * Gets the index of the current view, builds it if not found or
+	 * invalidated.
+	 *
+	 * @return the current instance, or null if there is no view root
+	 */
+	public static JKComponentIndex getCurrentInstance() {
+		return JKComponentIndex.getInstance(FacesContext.getCurrentInstance());
+	}
+
+	/**
+	 * Gets the index of the view of the given context, builds it if not
+	 * enabled, not found or invalidated.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the instance, or null if there is no view root
+	 */
+	public static JKComponentIndex getInstance(final FacesContext context) {
+		final UIViewRoot viewRoot = context.getViewRoot();
+		if (viewRoot == null) {
+			return null;
+		}
+		if (!isEnabled(context)) {
+			return new JKComponentIndex(context, viewRoot);
+		}
+		final TransientStateHelper helper = viewRoot.getTransientStateHelper();
+		JKComponentIndex index = (JKComponentIndex) helper.getTransient(KEY);
+		if (index == null) {
+			index = new JKComponentIndex(context, viewRoot);
+			helper.putTransient(KEY, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Drop the index of the view of the given context, if any.
+	 *
+	 * @param context
+	 *            the context
+	 */
+	public static void invalidate(final FacesContext context) {
+		final UIViewRoot viewRoot = context == null ? null : context.getViewRoot();
+		if (viewRoot == null) {
+			return;
+		}
+		final TransientStateHelper helper = viewRoot.getTransientStateHelper();
+		if (helper.getTransient(KEY) != null) {
+			helper.putTransient(KEY, null);
+		}
+	}
+
+	/**
+	 * Drop the index of the view of the given context if the component is in
+	 * that view, components of other trees (e.g. views built to be visited or
+	 * containers that are not attached yet) leave it unchanged.
+	 *
+	 * @param context
+	 *            the context
+	 * @param component
+	 *            the added or removed component
+	 */
+	public static void invalidate(final FacesContext context, final UIComponent component) {
+		final UIViewRoot viewRoot = context == null ? null : context.getViewRoot();
+		if (viewRoot == null || !component.isInView() || viewRoot.getTransientStateHelper().getTransient(KEY) == null) {
+			return;
+		}
+		UIComponent root = component;
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+		if (root == viewRoot) {
+			JKComponentIndex.invalidate(context);
+		}
+	}
+
+	/**
+	 * Checks if caching the index in the view root is enabled.
+	 *
+	 * @param context
+	 *            the context
+	 * @return true, if is enabled
+	 */
+	public static boolean isEnabled(final FacesContext context) {
+		return Boolean.parseBoolean(context.getExternalContext().getInitParameter(COMPONENT_INDEX_PARAM));
+	}
+
+	/**
+	 * Gets the closest naming container of the component, the view root if
+	 * none.
+	 *
+	 * @param component
+	 *            the component
+	 * @return the naming container
+	 */
+	private static UIComponent getNamingContainer(final UIComponent component) {
+		UIComponent current = component;
+		while (current.getParent() != null && !(current instanceof NamingContainer)) {
+			current = current.getParent();
+		}
+		return current;
+	}
+
+	/** client id -> component. */
+	private final Map<String, UIComponent> clientIds = new HashMap<>();
+
+	/** id -> components, in document order. */
+	private final Map<String, List<UIComponent>> ids = new HashMap<>();
+
+	/** concrete class -> components, in document order. */
+	private final Map<Class<?>, List<UIComponent>> classes = new LinkedHashMap<>();
+
+	/** requested type -> components, resolved on first request. */
+	private final Map<Class<?>, List<?>> types = new HashMap<>();
+
+	/** component -> document order. */
+	private final Map<UIComponent, Integer> order = new IdentityHashMap<>();
+
+	/** The components count. */
+	private int size;
+
+	/**
+	 * Instantiates a new index of the tree of the given root.
+	 *
+	 * @param context
+	 *            the context
+	 * @param root
+	 *            the root
+	 */
+	public JKComponentIndex(final FacesContext context, final UIComponent root) {
+		root.visitTree(VisitContext.createVisitContext(context, null, EnumSet.of(VisitHint.SKIP_ITERATION)), this);
+	}
+
+	/**
+	 * Find the component by client id.
+	 *
+	 * @param clientId
+	 *            the client id
+	 * @return the component, or null if not found
+	 */
+	public UIComponent findByClientId(final String clientId) {
+		return this.clientIds.get(clientId);
+	}
+
+	/**
+	 * Find the component by id, if the id is unique in the view.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the component, or null if not found or not unique
+	 */
+	public UIComponent findById(final String id) {
+		final List<UIComponent> components = this.ids.get(id);
+		return components == null || components.size() != 1 ? null : components.get(0);
+	}
+
+	/**
+	 * Find component by expression relative to the base component, simple
+	 * ids that are unique in the view are resolved from the index if they
+	 * belong to the naming container that
+	 * {@link UIComponent#findComponent(String)} would search, others fall
+	 * back to it.
+	 *
+	 * @param base
+	 *            the base component
+	 * @param expression
+	 *            the expression
+	 * @return the component, or null if not found
+	 */
+	public UIComponent findComponent(final UIComponent base, final String expression) {
+		final char separator = UINamingContainer.getSeparatorChar(FacesContext.getCurrentInstance());
+		if (expression.indexOf(separator) == -1) {
+			final UIComponent component = findById(expression);
+			if (component != null && component.getParent() != null
+					&& getNamingContainer(component.getParent()) == getNamingContainer(base)) {
+				return component;
+			}
+		}
+		return base.findComponent(expression);
+	}
+
+	/**
+	 * Gets the components of the given type, in document order.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type, classes and interfaces are supported
+	 * @return the components, unmodifiable
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getComponents(final Class<T> type) {
+		List<?> components = this.types.get(type);
+		if (components == null) {
+			final List<Class<?>> matches = new ArrayList<>();
+			for (final Class<?> clas : this.classes.keySet()) {
+				if (type.isAssignableFrom(clas)) {
+					matches.add(clas);
+				}
+			}
+			if (matches.size() == 1) {
+				components = Collections.unmodifiableList(this.classes.get(matches.get(0)));
+			} else {
+				// many classes, order by the index of each component in the
+				// tree
+				final List<UIComponent> merged = new ArrayList<>();
+				for (final Class<?> clas : matches) {
+					merged.addAll(this.classes.get(clas));
+				}
+				Collections.sort(merged, new Comparator<UIComponent>() {
+					@Override
+					public int compare(final UIComponent o1, final UIComponent o2) {
+						return Integer.compare(getOrder(o1), getOrder(o2));
+					}
+				});
+				components = Collections.unmodifiableList(merged);
+			}
+			this.types.put(type, components);
+		}
+		return (List<T>) components;
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the number of indexed components
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	@Override
+	public VisitResult visit(final VisitContext context, final UIComponent target) {
+		this.clientIds.put(target.getClientId(context.getFacesContext()), target);
+		final String id = target.getId();
+		if (id != null) {
+			List<UIComponent> components = this.ids.get(id);
+			if (components == null) {
+				components = new ArrayList<>(1);
+				this.ids.put(id, components);
+			}
+			components.add(target);
+		}
+		List<UIComponent> components = this.classes.get(target.getClass());
+		if (components == null) {
+			components = new ArrayList<>();
+			this.classes.put(target.getClass(), components);
+		}
+		components.add(target);
+		this.order.put(target, this.size++);
+		return VisitResult.ACCEPT;
+	}
+
+	/**
+	 * Gets the document order of the component.
+	 *
+	 * @param component
+	 *            the component
+	 * @return the order
+	 */
+	private int getOrder(final UIComponent component) {
+		return this.order.get(component);
+	}
+
+}
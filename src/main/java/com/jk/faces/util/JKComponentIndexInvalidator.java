@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import javax.faces.component.UIComponent;
+import javax.faces.context.FacesContext;
+import javax.faces.event.AbortProcessingException;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+
+/**
+ * <B>JKComponentIndexInvalidator</B> drops the {@link JKComponentIndex} of the
+ * current view when a component is added to or removed from it. Registered
+ * for <code>PostAddToViewEvent</code> and <code>PreRemoveFromViewEvent</code>
+ * in <code>faces-config.xml</code>, it does nothing unless the
+ * {@link JKComponentIndex#COMPONENT_INDEX_PARAM} context param is true.
+ */
+public class JKComponentIndexInvalidator implements SystemEventListener {
+
+	/** The enabled, read once per application. */
+	private volatile Boolean enabled;
+
+	@Override
+	public boolean isListenerForSource(final Object source) {
+		if (!(source instanceof UIComponent)) {
+			return false;
+		}
+		Boolean enabled = this.enabled;
+		if (enabled == null) {
+			enabled = JKComponentIndex.isEnabled(FacesContext.getCurrentInstance());
+			this.enabled = enabled;
+		}
+		return enabled;
+	}
+
+	@Override
+	public void processEvent(final SystemEvent event) throws AbortProcessingException {
+		JKComponentIndex.invalidate(FacesContext.getCurrentInstance(), (UIComponent) event.getSource());
+	}
+
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.MethodExpression;
+import javax.el.ValueExpression;
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKExpressionCache</B> is a bounded LRU cache of the parsed
+ * {@link ValueExpression} and {@link MethodExpression} objects, keyed by the
+ * expression string, the expected type and the parameters types.
+ * <P/>
+ * The expressions are parsed against the faces ELContext (no facelets
+ * variables), so the parsed expression doesn't hold any request state and can
+ * be shared between requests. The entries are split on segments each with its
+ * own lock, so concurrent requests don't contend on single lock.
+ * <P/>
+ * The size is controlled by the {@link #EXPRESSION_CACHE_SIZE_PARAM} context
+ * param, 0 disables the cache.
+ */
+public class JKExpressionCache {
+
+	/**
+	 * The cache key, the kind , expression , expected type and parameters
+	 * types.
+	 */
+	static final class Key {
+		private final boolean method;
+		private final String expression;
+		private final Class<?> expectedType;
+		private final Class<?>[] paramTypes;
+		private final int hash;
+
+		Key(final boolean method, final String expression, final Class<?> expectedType, final Class<?>[] paramTypes) {
+			this.method = method;
+			this.expression = expression;
+			this.expectedType = expectedType;
+			this.paramTypes = paramTypes;
+			int hash = method ? 1 : 0;
+			hash = 31 * hash + expression.hashCode();
+			hash = 31 * hash + (expectedType == null ? 0 : expectedType.hashCode());
+			this.hash = 31 * hash + Arrays.hashCode(paramTypes);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.hash == other.hash && this.method == other.method && this.expectedType == other.expectedType
+					&& this.expression.equals(other.expression) && Arrays.equals(this.paramTypes, other.paramTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/**
+	 * LRU segment of the cache.
+	 */
+	final class Segment extends LinkedHashMap<Key, Object> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		Segment(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+			if (size() > this.maxSize) {
+				JKExpressionCache.this.evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/** Context param of the max number of cached expressions, default 5000. */
+	public static final String EXPRESSION_CACHE_SIZE_PARAM = "com.jk.faces.EXPRESSION_CACHE_SIZE";
+
+	/** The Constant DEFAULT_MAX_SIZE. */
+	public static final int DEFAULT_MAX_SIZE = 5000;
+
+	/** The Constant MAX_SEGMENTS_COUNT, power of 2. */
+	private static final int MAX_SEGMENTS_COUNT = 16;
+
+	/** The Constant NO_PARAMS. */
+	private static final Class<?>[] NO_PARAMS = new Class<?>[0];
+
+	/** The instance. */
+	private static volatile JKExpressionCache instance;
+
+	/**
+	 * Gets the single instance of JKExpressionCache, sized from the
+	 * {@link #EXPRESSION_CACHE_SIZE_PARAM} context param of the first faces
+	 * context.
+	 *
+	 * @return single instance of JKExpressionCache
+	 */
+	public static JKExpressionCache getInstance() {
+		JKExpressionCache result = instance;
+		if (result == null) {
+			synchronized (JKExpressionCache.class) {
+				result = instance;
+				if (result == null) {
+					result = new JKExpressionCache(readMaxSize());
+					instance = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read the max size from the context param.
+	 *
+	 * @return the max size
+	 */
+	private static int readMaxSize() {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		final String value = context == null ? null : context.getExternalContext().getInitParameter(EXPRESSION_CACHE_SIZE_PARAM);
+		if (value == null || value.trim().isEmpty()) {
+			return DEFAULT_MAX_SIZE;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			return DEFAULT_MAX_SIZE;
+		}
+	}
+
+	/** The max size. */
+	private final int maxSize;
+
+	/** The segments. */
+	private final Segment[] segments;
+
+	/** The hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The misses. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** The evictions. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new JK expression cache.
+	 *
+	 * @param maxSize
+	 *            the max number of cached expressions, 0 to disable
+	 */
+	public JKExpressionCache(final int maxSize) {
+		this.maxSize = maxSize;
+		// fewer segments for small sizes, the sizes of the segments sum up to
+		// exactly the max size
+		final int count = Math.max(1, Integer.highestOneBit(Math.min(MAX_SEGMENTS_COUNT, maxSize)));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			this.segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Clear the cache and the counters.
+	 */
+	public void clear() {
+		for (final Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		this.hits.set(0);
+		this.misses.set(0);
+		this.evictions.set(0);
+	}
+
+	/**
+	 * Gets the cached expression.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the expression, or null
+	 */
+	private Object get(final Key key) {
+		final Segment segment = segmentFor(key);
+		final Object expression;
+		synchronized (segment) {
+			expression = segment.get(key);
+		}
+		if (expression == null) {
+			this.misses.incrementAndGet();
+		} else {
+			this.hits.incrementAndGet();
+		}
+		return expression;
+	}
+
+	/**
+	 * Gets the evictions.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * Gets the hit rate.
+	 *
+	 * @return the hits / (hits + misses), or 0 if no lookups yet
+	 */
+	public double getHitRate() {
+		final long hits = this.hits.get();
+		final long total = hits + this.misses.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Gets the max size.
+	 *
+	 * @return the max size
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Gets the parsed method expression from the cache, or create and cache it.
+	 *
+	 * @param factory
+	 *            the expression factory
+	 * @param elContext
+	 *            the el context
+	 * @param expression
+	 *            the expression
+	 * @param returnType
+	 *            the expected return type
+	 * @param paramTypes
+	 *            the parameters types
+	 * @return the method expression
+	 */
+	public MethodExpression getMethodExpression(final ExpressionFactory factory, final ELContext elContext, final String expression,
+			final Class<?> returnType, final Class<?>[] paramTypes) {
+		final Class<?>[] params = paramTypes == null ? NO_PARAMS : paramTypes;
+		if (!isEnabled() || expression == null) {
+			return factory.createMethodExpression(elContext, expression, returnType, params);
+		}
+		final Key key = new Key(true, expression, returnType, params.clone());
+		MethodExpression methodExpression = (MethodExpression) get(key);
+		if (methodExpression == null) {
+			methodExpression = factory.createMethodExpression(elContext, expression, returnType, params);
+			put(key, methodExpression);
+		}
+		return methodExpression;
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Gets the current number of cached expressions.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		int size = 0;
+		for (final Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the parsed value expression from the cache, or create and cache it.
+	 *
+	 * @param factory
+	 *            the expression factory
+	 * @param elContext
+	 *            the el context
+	 * @param expression
+	 *            the expression
+	 * @param expectedType
+	 *            the expected type
+	 * @return the value expression
+	 */
+	public ValueExpression getValueExpression(final ExpressionFactory factory, final ELContext elContext, final String expression,
+			final Class<?> expectedType) {
+		if (!isEnabled() || expression == null) {
+			return factory.createValueExpression(elContext, expression, expectedType);
+		}
+		final Key key = new Key(false, expression, expectedType, NO_PARAMS);
+		ValueExpression valueExpression = (ValueExpression) get(key);
+		if (valueExpression == null) {
+			valueExpression = factory.createValueExpression(elContext, expression, expectedType);
+			put(key, valueExpression);
+		}
+		return valueExpression;
+	}
+
+	/**
+	 * Checks if is enabled.
+	 *
+	 * @return true, if is enabled
+	 */
+	public boolean isEnabled() {
+		return this.maxSize > 0;
+	}
+
+	/**
+	 * Cache the parsed expression.
+	 *
+	 * @param key
+	 *            the key
+	 * @param expression
+	 *            the expression
+	 */
+	private void put(final Key key, final Object expression) {
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, expression);
+		}
+	}
+
+	/**
+	 * Gets the segment of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the segment
+	 */
+	private Segment segmentFor(final Key key) {
+		final int hash = key.hashCode();
+		return this.segments[(hash ^ hash >>> 16) & this.segments.length - 1];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("expressions cache : size=%d/%d , hits=%d , misses=%d , evictions=%d , hit rate=%.2f", getSize(), this.maxSize,
+				getHits(), getMisses(), getEvictions(), getHitRate());
+	}
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKRenderedViewsCache</B> is a bounded LRU cache of the html rendered by
+ * {@link JSFUtil#buildCachedView(String, String...)}, keyed by the view id and
+ * the values of the EL expressions the view depends on, each entry expires
+ * after the configured time to live.
+ * <P/>
+ * The dependencies values are compared by equals, so they should be simple
+ * values (e.g. ids or locale) rather than mutable objects.
+ */
+public class JKRenderedViewsCache {
+
+	/**
+	 * The cache entry, the html and the expiry time.
+	 */
+	static final class Entry {
+		private final String html;
+		private final long expiry;
+
+		Entry(final String html, final long expiry) {
+			this.html = html;
+			this.expiry = expiry;
+		}
+	}
+
+	/**
+	 * The cache key, the view id and the dependencies values.
+	 */
+	static final class Key {
+		private final String viewId;
+		private final Object[] values;
+		private final int hash;
+
+		Key(final String viewId, final Object[] values) {
+			this.viewId = viewId;
+			this.values = values;
+			this.hash = 31 * viewId.hashCode() + Arrays.hashCode(values);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.hash == other.hash && this.viewId.equals(other.viewId) && Arrays.equals(this.values, other.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/** Context param of the max number of cached views, default 100. */
+	public static final String MAX_SIZE_PARAM = "com.jk.faces.RENDERED_VIEWS_CACHE_SIZE";
+
+	/** Context param of the time to live in seconds, default 60. */
+	public static final String TTL_PARAM = "com.jk.faces.RENDERED_VIEWS_CACHE_TTL";
+
+	/** The Constant DEFAULT_MAX_SIZE. */
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+	/** The Constant DEFAULT_TTL, in seconds. */
+	public static final int DEFAULT_TTL = 60;
+
+	/** The instance. */
+	private static volatile JKRenderedViewsCache instance;
+
+	/**
+	 * Gets the single instance of JKRenderedViewsCache, configured from the
+	 * context params of the first faces context.
+	 *
+	 * @return single instance of JKRenderedViewsCache
+	 */
+	public static JKRenderedViewsCache getInstance() {
+		JKRenderedViewsCache result = instance;
+		if (result == null) {
+			synchronized (JKRenderedViewsCache.class) {
+				result = instance;
+				if (result == null) {
+					final FacesContext context = FacesContext.getCurrentInstance();
+					result = new JKRenderedViewsCache(readParam(context, MAX_SIZE_PARAM, DEFAULT_MAX_SIZE),
+							TimeUnit.SECONDS.toMillis(readParam(context, TTL_PARAM, DEFAULT_TTL)));
+					instance = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read int context param.
+	 *
+	 * @param context
+	 *            the context
+	 * @param name
+	 *            the name
+	 * @param defaultValue
+	 *            the default value
+	 * @return the int
+	 */
+	private static int readParam(final FacesContext context, final String name, final int defaultValue) {
+		final String value = context == null ? null : context.getExternalContext().getInitParameter(name);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/** The max size. */
+	private final int maxSize;
+
+	/** The ttl in millis. */
+	private final long ttl;
+
+	/** The cache. */
+	private final Map<Key, Entry> cache;
+
+	/** The hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The misses. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Instantiates a new JK rendered views cache.
+	 *
+	 * @param maxSize
+	 *            the max number of cached views, 0 to disable
+	 * @param ttl
+	 *            the time to live in millis
+	 */
+	public JKRenderedViewsCache(final int maxSize, final long ttl) {
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		this.cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				return size() > JKRenderedViewsCache.this.maxSize || eldest.getValue().expiry < System.currentTimeMillis();
+			}
+		};
+	}
+
+	/**
+	 * Clear the cache and the counters.
+	 */
+	public void clear() {
+		synchronized (this.cache) {
+			this.cache.clear();
+		}
+		this.hits.set(0);
+		this.misses.set(0);
+	}
+
+	/**
+	 * Gets the rendered html of the view.
+	 *
+	 * @param viewId
+	 *            the view id
+	 * @param values
+	 *            the values of the view dependencies
+	 * @return the html, or null if not found or expired
+	 */
+	public String get(final String viewId, final Object[] values) {
+		final Key key = new Key(viewId, values);
+		Entry entry;
+		synchronized (this.cache) {
+			entry = this.cache.get(key);
+			if (entry != null && entry.expiry < System.currentTimeMillis()) {
+				this.cache.remove(key);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return entry.html;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Gets the max size.
+	 *
+	 * @return the max size
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Gets the current number of cached views, including expired ones not
+	 * evicted yet.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * Gets the time to live.
+	 *
+	 * @return the ttl in millis
+	 */
+	public long getTtl() {
+		return this.ttl;
+	}
+
+	/**
+	 * Invalidate all the cached versions of the view.
+	 *
+	 * @param viewId
+	 *            the view id
+	 */
+	public void invalidate(final String viewId) {
+		synchronized (this.cache) {
+			final Iterator<Key> iterator = this.cache.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().viewId.equals(viewId)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if is enabled.
+	 *
+	 * @return true, if is enabled
+	 */
+	public boolean isEnabled() {
+		return this.maxSize > 0 && this.ttl > 0;
+	}
+
+	/**
+	 * Cache the rendered html of the view.
+	 *
+	 * @param viewId
+	 *            the view id
+	 * @param values
+	 *            the values of the view dependencies
+	 * @param html
+	 *            the html
+	 */
+	public void put(final String viewId, final Object[] values, final String html) {
+		if (!isEnabled()) {
+			return;
+		}
+		final Key key = new Key(viewId, values);
+		synchronized (this.cache) {
+			this.cache.put(key, new Entry(html, System.currentTimeMillis() + this.ttl));
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.Map;
+
+import javax.el.ExpressionFactory;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+import com.jk.faces.components.TagAttributeConstants;
+
+/**
+ * <B>JKRequestContext</B> memoizes the lookups derived from the FacesContext
+ * that {@link JSFUtil} repeats many times per request (session and request
+ * maps and application expression factory). It is stored once in the
+ * FacesContext attributes, so it is released with the request.
+ * <P/>
+ * The current view name is not memoized, since the <code>currentView</code>
+ * attributes could be written directly at any time, it is resolved from the
+ * memoized maps on every call.
+ */
+public class JKRequestContext {
+
+	/** The FacesContext attribute. */
+	private static final String ATTRIBUTE = JKRequestContext.class.getName();
+
+	/**
+	 * Gets the request context of the current faces context.
+	 *
+	 * @return the current instance
+	 */
+	public static JKRequestContext getCurrentInstance() {
+		return JKRequestContext.getInstance(FacesContext.getCurrentInstance());
+	}
+
+	/**
+	 * Gets the request context of the given faces context, creates it if not
+	 * found.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the instance
+	 */
+	public static JKRequestContext getInstance(final FacesContext context) {
+		final Map<Object, Object> attributes = context.getAttributes();
+		JKRequestContext requestContext = (JKRequestContext) attributes.get(ATTRIBUTE);
+		if (requestContext == null) {
+			requestContext = new JKRequestContext(context);
+			attributes.put(ATTRIBUTE, requestContext);
+		}
+		return requestContext;
+	}
+
+	/** The context. */
+	private final FacesContext context;
+
+	/** The session map. */
+	private Map<String, Object> sessionMap;
+
+	/** The request map. */
+	private Map<String, Object> requestMap;
+
+	/** The expression factory. */
+	private ExpressionFactory expressionFactory;
+
+	/**
+	 * Instantiates a new JK request context.
+	 *
+	 * @param context
+	 *            the context
+	 */
+	JKRequestContext(final FacesContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * Gets the application expression factory.
+	 *
+	 * @return the expression factory
+	 */
+	public ExpressionFactory getApplicationExpressionFactory() {
+		if (this.expressionFactory == null) {
+			this.expressionFactory = this.context.getApplication().getExpressionFactory();
+		}
+		return this.expressionFactory;
+	}
+
+	/**
+	 * Gets the current view name, the <code>currentView</code> session
+	 * attribute, then the <code>currentView</code> faces context attribute,
+	 * then the view root id.
+	 *
+	 * @return the current view
+	 */
+	public String getCurrentView() {
+		return resolveCurrentView(this.context.getViewRoot());
+	}
+
+	/**
+	 * Gets the request map.
+	 *
+	 * @return the request map
+	 */
+	public Map<String, Object> getRequestMap() {
+		if (this.requestMap == null) {
+			this.requestMap = this.context.getExternalContext().getRequestMap();
+		}
+		return this.requestMap;
+	}
+
+	/**
+	 * Gets the session map.
+	 *
+	 * @return the session map
+	 */
+	public Map<String, Object> getSessionMap() {
+		if (this.sessionMap == null) {
+			this.sessionMap = this.context.getExternalContext().getSessionMap();
+		}
+		return this.sessionMap;
+	}
+
+	/**
+	 * Resolve the current view.
+	 *
+	 * @param viewRoot
+	 *            the view root
+	 * @return the current view
+	 */
+	private String resolveCurrentView(final UIViewRoot viewRoot) {
+		Object viewName = getSessionMap().get(TagAttributeConstants.CURRENT_VIEW);
+		if (viewName != null) {
+			return viewName.toString();
+		}
+		viewName = this.context.getAttributes().get(TagAttributeConstants.CURRENT_VIEW);
+		if (viewName != null) {
+			return viewName.toString();
+		}
+		return viewRoot.getViewId();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.io.Serializable;
+
+import javax.faces.context.FacesContext;
+import javax.faces.event.AbortProcessingException;
+import javax.faces.event.ValueChangeEvent;
+import javax.faces.event.ValueChangeListener;
+
+/**
+ * <B>JKTrackingValueChangeListener</B> records the value changes of the input
+ * it is attached to in the {@link JKViewChangeTracker} of the current view.
+ */
+public class JKTrackingValueChangeListener implements ValueChangeListener, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public void processValueChange(final ValueChangeEvent event) throws AbortProcessingException {
+		final JKViewChangeTracker tracker = JKViewChangeTracker.getCurrentInstance(true);
+		if (tracker != null) {
+			tracker.valueChanged(event.getComponent().getClientId(FacesContext.getCurrentInstance()), event.getOldValue(), event.getNewValue());
+		}
+	}
+
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.faces.component.UIComponent;
+import javax.faces.component.UIForm;
+import javax.faces.component.UINamingContainer;
+import javax.faces.component.UIViewRoot;
+import javax.faces.component.visit.VisitCallback;
+import javax.faces.component.visit.VisitContext;
+import javax.faces.component.visit.VisitHint;
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKTreeAnalyzer</B> collects the components of a tree by their
+ * {@link UIFacesVisitor.Category categories}, in document order.
+ * <P/>
+ * Trees smaller than the configured threshold are visited with
+ * <code>UIComponent.visitTree</code> on the request thread. Larger trees are
+ * walked in a shared <code>ForkJoinPool</code>, a task per subtree (regions,
+ * panels, fields regions) down to a fixed depth, each task walking its
+ * subtree and keeping the components of the selected categories. The
+ * subtrees that must be visited with their own <code>visitTree</code> (data
+ * tables and other row iterating components, naming containers such as
+ * composite components) are not entered by the pool threads.
+ * <P/>
+ * The results are then merged on the request thread in document order, the
+ * kept components are passed to {@link UIFacesVisitor#collect(UIComponent)}
+ * and the deferred subtrees are visited, so the visitor callback always runs
+ * on the request thread, with the row of the data tables set, since the row
+ * state and the EL are bound to the <code>FacesContext</code> of the request
+ * thread.
+ */
+public class JKTreeAnalyzer {
+
+	/**
+	 * Walks a subtree in the pool, the result is the list of its segments in
+	 * document order, each is either a list of the components to collect, a
+	 * {@link SubtreeTask} of a forked subtree or a {@link UIComponent} to
+	 * visit on the request thread.
+	 */
+	static final class SubtreeTask extends RecursiveTask<List<Object>> {
+		private static final long serialVersionUID = 1L;
+
+		private final UIComponent root;
+		private final int depth;
+		private final boolean skipTransient;
+		private final UIFacesVisitor prototype;
+		private final List<Object> segments = new ArrayList<>();
+		private final List<SubtreeTask> forked = new ArrayList<>();
+		private List<UIComponent> current;
+
+		SubtreeTask(final UIComponent root, final int depth, final boolean skipTransient, final UIFacesVisitor prototype) {
+			this.root = root;
+			this.depth = depth;
+			this.skipTransient = skipTransient;
+			this.prototype = prototype;
+		}
+
+		@Override
+		protected List<Object> compute() {
+			walk(this.root, this.depth);
+			for (int i = this.forked.size() - 1; i >= 0; i--) {
+				this.forked.get(i).join();
+			}
+			return this.segments;
+		}
+
+		/**
+		 * Walk the component and its facets and children.
+		 *
+		 * @param component
+		 *            the component
+		 * @param level
+		 *            the depth of the component
+		 */
+		private void walk(final UIComponent component, final int level) {
+			if (this.skipTransient && component.isTransient()) {
+				return;
+			}
+			if (isVisitRequired(component)) {
+				this.segments.add(component);
+				this.current = null;
+				return;
+			}
+			if (this.prototype.matches(component)) {
+				if (this.current == null) {
+					this.current = new ArrayList<>();
+					this.segments.add(this.current);
+				}
+				this.current.add(component);
+			}
+			if (component.getFacetCount() == 0 && component.getChildCount() == 0) {
+				return;
+			}
+			final Iterator<UIComponent> iterator = component.getFacetsAndChildren();
+			while (iterator.hasNext()) {
+				final UIComponent child = iterator.next();
+				if (level < MAX_FORK_DEPTH && (child.getFacetCount() > 0 || child.getChildCount() > 0)) {
+					final SubtreeTask task = new SubtreeTask(child, level + 1, this.skipTransient, this.prototype);
+					task.fork();
+					this.forked.add(task);
+					this.segments.add(task);
+					this.current = null;
+				} else {
+					walk(child, level + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Context param of the min number of components to walk in parallel,
+	 * default 10000, 0 to disable the parallel walk.
+	 */
+	public static final String THRESHOLD_PARAM = "com.jk.faces.PARALLEL_ANALYSIS_THRESHOLD";
+
+	/** The Constant DEFAULT_THRESHOLD. */
+	public static final int DEFAULT_THRESHOLD = 10000;
+
+	/** The depth below which the subtrees are walked by their parent task. */
+	private static final int MAX_FORK_DEPTH = 6;
+
+	/** The hints the pool threads can honor without the request thread. */
+	private static final Set<VisitHint> PARALLEL_HINTS = EnumSet.of(VisitHint.SKIP_TRANSIENT, VisitHint.SKIP_ITERATION);
+
+	/**
+	 * component class -> true if its own visitTree must be used, resolved
+	 * once per class.
+	 */
+	private static final ClassValue<Boolean> VISIT_REQUIRED = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(final Class<?> type) {
+			// composite components push themselves to the EL (#{cc}) in their
+			// visit
+			if (UINamingContainer.class.isAssignableFrom(type)) {
+				return true;
+			}
+			try {
+				// the form visit only differs for partial visits
+				final Class<?> declaring = type.getMethod("visitTree", VisitContext.class, VisitCallback.class).getDeclaringClass();
+				return declaring != UIComponent.class && declaring != UIForm.class;
+			} catch (final NoSuchMethodException e) {
+				return true;
+			}
+		}
+	};
+
+	/**
+	 * view id -> true if larger than the threshold, the views are counted
+	 * once since their trees are rebuilt with about the same size.
+	 */
+	private static final ConcurrentMap<String, Boolean> LARGE_VIEWS = new ConcurrentHashMap<>();
+
+	/** The threshold, read once per application. */
+	private static volatile Integer threshold;
+
+	/** The pool. */
+	private static volatile ForkJoinPool pool;
+
+	/**
+	 * Collect the components of the categories of the visitor in document
+	 * order, walked in parallel if the tree is larger than the threshold.
+	 *
+	 * @param context
+	 *            the context
+	 * @param root
+	 *            the root
+	 * @param hints
+	 *            the visit hints
+	 * @param result
+	 *            the visitor to collect into
+	 * @return the result
+	 */
+	public static UIFacesVisitor collect(final FacesContext context, final UIComponent root, final Set<VisitHint> hints,
+			final UIFacesVisitor result) {
+		final int threshold = JKTreeAnalyzer.getThreshold(context);
+		if (threshold <= 0 || !PARALLEL_HINTS.containsAll(hints) || isVisitRequired(root) || !isLarge(root, threshold)) {
+			root.visitTree(VisitContext.createVisitContext(context, null, hints), result);
+			return result;
+		}
+		final boolean skipTransient = hints.contains(VisitHint.SKIP_TRANSIENT);
+		final List<Object> segments = JKTreeAnalyzer.getPool().invoke(new SubtreeTask(root, 0, skipTransient, result));
+		JKTreeAnalyzer.merge(context, segments, hints, result);
+		return result;
+	}
+
+	/**
+	 * Shutdown the shared pool, called by {@link JKTreeAnalyzerListener} when
+	 * the application is stopped.
+	 */
+	public static void shutdown() {
+		synchronized (JKTreeAnalyzer.class) {
+			if (pool != null) {
+				pool.shutdownNow();
+				pool = null;
+			}
+			threshold = null;
+			LARGE_VIEWS.clear();
+		}
+	}
+
+	/**
+	 * Checks if the component must be visited with its own visitTree, on the
+	 * request thread.
+	 *
+	 * @param component
+	 *            the component
+	 * @return true, if is visit required
+	 */
+	static boolean isVisitRequired(final UIComponent component) {
+		return VISIT_REQUIRED.get(component.getClass());
+	}
+
+	/**
+	 * Gets the shared pool, created on first parallel walk.
+	 *
+	 * @return the pool
+	 */
+	private static ForkJoinPool getPool() {
+		ForkJoinPool result = pool;
+		if (result == null) {
+			synchronized (JKTreeAnalyzer.class) {
+				result = pool;
+				if (result == null) {
+					result = new ForkJoinPool();
+					pool = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the threshold from the context param.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the threshold
+	 */
+	private static int getThreshold(final FacesContext context) {
+		Integer result = threshold;
+		if (result == null) {
+			result = DEFAULT_THRESHOLD;
+			final String value = context == null ? null : context.getExternalContext().getInitParameter(THRESHOLD_PARAM);
+			if (value != null && !value.trim().isEmpty()) {
+				try {
+					result = Integer.parseInt(value.trim());
+				} catch (final NumberFormatException e) {
+					result = DEFAULT_THRESHOLD;
+				}
+			}
+			threshold = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if the tree has at least the given number of components, the
+	 * result of a view root is cached by its view id.
+	 *
+	 * @param root
+	 *            the root
+	 * @param limit
+	 *            the limit
+	 * @return true, if is large
+	 */
+	private static boolean isLarge(final UIComponent root, final int limit) {
+		final String viewId = root instanceof UIViewRoot ? ((UIViewRoot) root).getViewId() : null;
+		if (viewId == null) {
+			return JKTreeAnalyzer.isLarger(root, limit);
+		}
+		Boolean result = LARGE_VIEWS.get(viewId);
+		if (result == null) {
+			result = JKTreeAnalyzer.isLarger(root, limit);
+			LARGE_VIEWS.put(viewId, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if the tree has at least the given number of components, stops
+	 * counting once reached.
+	 *
+	 * @param root
+	 *            the root
+	 * @param limit
+	 *            the limit
+	 * @return true, if is larger
+	 */
+	private static boolean isLarger(final UIComponent root, final int limit) {
+		int count = 1;
+		final Deque<Iterator<UIComponent>> stack = new ArrayDeque<>();
+		stack.push(root.getFacetsAndChildren());
+		while (!stack.isEmpty() && count < limit) {
+			final Iterator<UIComponent> iterator = stack.peek();
+			if (!iterator.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			final UIComponent component = iterator.next();
+			count++;
+			if (component.getFacetCount() > 0 || component.getChildCount() > 0) {
+				stack.push(component.getFacetsAndChildren());
+			}
+		}
+		return count >= limit;
+	}
+
+	/**
+	 * Merge the segments in document order, visiting the deferred subtrees.
+	 *
+	 * @param context
+	 *            the context
+	 * @param segments
+	 *            the segments
+	 * @param hints
+	 *            the hints
+	 * @param result
+	 *            the result
+	 */
+	@SuppressWarnings("unchecked")
+	private static void merge(final FacesContext context, final List<Object> segments, final Set<VisitHint> hints, final UIFacesVisitor result) {
+		for (final Object segment : segments) {
+			if (result.isLimitReached()) {
+				return;
+			}
+			if (segment instanceof List) {
+				for (final UIComponent component : (List<UIComponent>) segment) {
+					if (result.collect(component)) {
+						return;
+					}
+				}
+			} else if (segment instanceof SubtreeTask) {
+				JKTreeAnalyzer.merge(context, ((SubtreeTask) segment).join(), hints, result);
+			} else {
+				((UIComponent) segment).visitTree(VisitContext.createVisitContext(context, null, hints), result);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * <B>JKTreeAnalyzerListener</B> stops the threads of the
+ * {@link JKTreeAnalyzer} pool when the application is stopped.
+ */
+public class JKTreeAnalyzerListener implements ServletContextListener {
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		JKTreeAnalyzer.shutdown();
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+	}
+
+}
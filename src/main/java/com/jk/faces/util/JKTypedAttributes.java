@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.component.TransientStateHelper;
+import javax.faces.component.UIComponent;
+
+/**
+ * <B>JKTypedAttributes</B> reads component attributes as primitives. Values
+ * that are already <code>Integer</code>/<code>Boolean</code> are returned as
+ * is, string values (e.g. literal attributes in the facelet) are parsed once
+ * and the result is cached in the transient state of the component, so it is
+ * not added to the saved view state.
+ */
+public class JKTypedAttributes {
+
+	/**
+	 * The parsed value and the source value it has been parsed from.
+	 */
+	static final class Parsed {
+		private final Object source;
+		private final Object value;
+
+		Parsed(final Object source, final Object value) {
+			this.source = source;
+			this.value = value;
+		}
+	}
+
+	/** attribute name -> transient state key. */
+	private static final ConcurrentMap<String, String> KEYS = new ConcurrentHashMap<>();
+
+	/** The Constant KEY_PREFIX. */
+	private static final String KEY_PREFIX = JKTypedAttributes.class.getName().concat(".");
+
+	/**
+	 * Gets the attribute as boolean.
+	 *
+	 * @param component
+	 *            the component
+	 * @param key
+	 *            the key
+	 * @param defaultValue
+	 *            the default value, if the attribute is null
+	 * @return the boolean value
+	 */
+	public static boolean getBoolean(final UIComponent component, final String key, final boolean defaultValue) {
+		final Object value = component.getAttributes().get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		return (Boolean) parse(component, key, value, Boolean.class);
+	}
+
+	/**
+	 * Gets the attribute as int.
+	 *
+	 * @param component
+	 *            the component
+	 * @param key
+	 *            the key
+	 * @param defaultValue
+	 *            the default value, if the attribute is null
+	 * @return the int value
+	 * @throws NumberFormatException
+	 *             if the value is not a number
+	 */
+	public static int getInt(final UIComponent component, final String key, final int defaultValue) {
+		final Object value = component.getAttributes().get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		return toInt(component, key, value);
+	}
+
+	/**
+	 * Converts the not null attribute value to int.
+	 *
+	 * @param component
+	 *            the component
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the int value
+	 */
+	static int toInt(final UIComponent component, final String key, final Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		return (Integer) parse(component, key, value, Integer.class);
+	}
+
+	/**
+	 * Parse the value, or get it from the component transient state if the
+	 * same value has been parsed before.
+	 *
+	 * @param component
+	 *            the component
+	 * @param key
+	 *            the attribute key
+	 * @param value
+	 *            the value
+	 * @param type
+	 *            Integer or Boolean
+	 * @return the parsed value
+	 */
+	private static Object parse(final UIComponent component, final String key, final Object value, final Class<?> type) {
+		String stateKey = KEYS.get(key);
+		if (stateKey == null) {
+			stateKey = KEY_PREFIX.concat(key);
+			KEYS.putIfAbsent(key, stateKey);
+		}
+		final TransientStateHelper helper = component.getTransientStateHelper();
+		final Parsed cached = (Parsed) helper.getTransient(stateKey);
+		if (cached != null && cached.source == value && type.isInstance(cached.value)) {
+			return cached.value;
+		}
+		final String string = value.toString();
+		final Object parsed = type == Boolean.class ? Boolean.valueOf(string) : Integer.valueOf(string);
+		helper.putTransient(stateKey, new Parsed(value, parsed));
+		return parsed;
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionIdListener;
+
+/**
+ * <B>JKViewAttributesSessionIdListener</B> moves the
+ * {@link JKViewAttributesStore} kept in the application when the session id
+ * changes. Servlet 3.1 only, registered by
+ * {@link JKViewAttributesSessionListener} when supported.
+ */
+public class JKViewAttributesSessionIdListener implements HttpSessionIdListener {
+
+	@Override
+	public void sessionIdChanged(final HttpSessionEvent event, final String oldSessionId) {
+		final Map<String, Object> stores = JKViewAttributesSessionListener.getStores(event.getSession().getServletContext());
+		if (stores != null) {
+			final Object store = stores.remove(oldSessionId);
+			if (store != null) {
+				stores.put(event.getSession().getId(), store);
+			}
+		}
+	}
+
+}
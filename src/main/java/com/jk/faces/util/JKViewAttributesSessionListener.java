@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * <B>JKViewAttributesSessionListener</B> removes the
+ * {@link JKViewAttributesStore} kept in the application of the destroyed
+ * sessions. On Servlet 3.1 containers, it registers
+ * {@link JKViewAttributesSessionIdListener} to move the store when the
+ * session id changes, it is not declared in the web fragment since
+ * <code>HttpSessionIdListener</code> does not exist in Servlet 3.0.
+ */
+public class JKViewAttributesSessionListener implements HttpSessionListener, ServletContextListener {
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKViewAttributesSessionListener.class.getName());
+
+	/**
+	 * Gets the stores kept in the application.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the stores, or null if not used
+	 */
+	@SuppressWarnings("unchecked")
+	static Map<String, Object> getStores(final ServletContext context) {
+		return (Map<String, Object>) context.getAttribute(JKViewAttributesStore.ATTRIBUTE);
+	}
+
+	/**
+	 * Checks if the session id listener is supported by the container.
+	 *
+	 * @return true, if is session id listener supported
+	 */
+	private static boolean isSessionIdListenerSupported() {
+		try {
+			Class.forName("javax.servlet.http.HttpSessionIdListener", false, JKViewAttributesSessionListener.class.getClassLoader());
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		final ServletContext context = event.getServletContext();
+		if (!"application".equals(context.getInitParameter(JKViewAttributesStore.STORE_PARAM)) || !isSessionIdListenerSupported()) {
+			return;
+		}
+		try {
+			context.addListener(JKViewAttributesSessionIdListener.class);
+		} catch (final RuntimeException e) {
+			logger.log(Level.WARNING, "unable to register the session id listener , the view attributes are lost when the session id changes",
+					e);
+		}
+	}
+
+	@Override
+	public void sessionCreated(final HttpSessionEvent event) {
+	}
+
+	@Override
+	public void sessionDestroyed(final HttpSessionEvent event) {
+		final Map<String, Object> stores = getStores(event.getSession().getServletContext());
+		if (stores != null) {
+			stores.remove(event.getSession().getId());
+		}
+	}
+
+}
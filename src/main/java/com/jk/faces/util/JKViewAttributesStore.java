@@ -0,0 +1,413 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKViewAttributesStore</B> holds the component attributes set by
+ * {@link JSFUtil#setComponentAttribute(javax.faces.component.UIComponent, String, Object)}
+ * for single user session, bounded by the number of views (least recently
+ * used view is evicted first) and the number of attributes per view (least
+ * recently used component is evicted first).
+ * <P/>
+ * The store is kept in the http session by default, or in the application
+ * (outside the session, so it is not serialized nor replicated) if the
+ * {@link #STORE_PARAM} context param is <code>application</code>, in this
+ * case it is removed by {@link JKViewAttributesSessionListener} when the
+ * session is destroyed. In the session, the store is put again after every
+ * change by {@link #saveChanges(JKViewAttributesStore)}, so the container
+ * replicates it.
+ */
+public class JKViewAttributesStore implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Context param of where to keep the store, <code>session</code>
+	 * (default) or <code>application</code>.
+	 */
+	public static final String STORE_PARAM = "com.jk.faces.VIEW_ATTRIBUTES_STORE";
+
+	/** Context param of the max views per session, default 10. */
+	public static final String MAX_VIEWS_PARAM = "com.jk.faces.VIEW_ATTRIBUTES_MAX_VIEWS";
+
+	/** Context param of the max attributes per view, default 1000. */
+	public static final String MAX_ATTRIBUTES_PARAM = "com.jk.faces.VIEW_ATTRIBUTES_MAX_ATTRIBUTES";
+
+	/**
+	 * Context param to drop the attributes of the view when the user moves to
+	 * another view, default false.
+	 */
+	public static final String EVICT_ON_LEAVE_PARAM = "com.jk.faces.VIEW_ATTRIBUTES_EVICT_ON_LEAVE";
+
+	/** The Constant DEFAULT_MAX_VIEWS. */
+	public static final int DEFAULT_MAX_VIEWS = 10;
+
+	/** The Constant DEFAULT_MAX_ATTRIBUTES. */
+	public static final int DEFAULT_MAX_ATTRIBUTES = 1000;
+
+	/** The session or application attribute. */
+	static final String ATTRIBUTE = JKViewAttributesStore.class.getName();
+
+	/**
+	 * Gets the store of the current session, creates it if not found.
+	 *
+	 * @return the current instance
+	 */
+	@SuppressWarnings("unchecked")
+	public static JKViewAttributesStore getCurrentInstance() {
+		final ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+		if (isApplicationStore(context)) {
+			final Map<String, Object> applicationMap = context.getApplicationMap();
+			ConcurrentMap<String, Object> stores = (ConcurrentMap<String, Object>) applicationMap.get(ATTRIBUTE);
+			if (stores == null) {
+				synchronized (JKViewAttributesStore.class) {
+					stores = (ConcurrentMap<String, Object>) applicationMap.get(ATTRIBUTE);
+					if (stores == null) {
+						stores = new ConcurrentHashMap<>();
+						applicationMap.put(ATTRIBUTE, stores);
+					}
+				}
+			}
+			final String sessionId = context.getSessionId(true);
+			JKViewAttributesStore store = (JKViewAttributesStore) stores.get(sessionId);
+			if (store == null) {
+				store = createStore(context);
+				final Object existing = stores.putIfAbsent(sessionId, store);
+				if (existing != null) {
+					store = (JKViewAttributesStore) existing;
+				}
+			}
+			return store;
+		}
+		final Map<String, Object> sessionMap = context.getSessionMap();
+		JKViewAttributesStore store = (JKViewAttributesStore) sessionMap.get(ATTRIBUTE);
+		if (store == null) {
+			// the session object identity is not guaranteed across requests,
+			// so the creation is guarded by a store level lock, it happens
+			// once per session
+			synchronized (JKViewAttributesStore.class) {
+				store = (JKViewAttributesStore) sessionMap.get(ATTRIBUTE);
+				if (store == null) {
+					store = createStore(context);
+					sessionMap.put(ATTRIBUTE, store);
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Checks if the stores are kept in the application.
+	 *
+	 * @param context
+	 *            the context
+	 * @return true, if is application store
+	 */
+	static boolean isApplicationStore(final ExternalContext context) {
+		return "application".equals(context.getInitParameter(STORE_PARAM));
+	}
+
+	/**
+	 * Put the store of the current session back in the session if it has
+	 * changed since the last call, so the container replicates the change.
+	 * Does nothing for the stores kept in the application.
+	 *
+	 * @param store
+	 *            the store returned by {@link #getCurrentInstance()}
+	 */
+	public static void saveChanges(final JKViewAttributesStore store) {
+		if (!store.takeChanged()) {
+			return;
+		}
+		final ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+		if (!isApplicationStore(context)) {
+			context.getSessionMap().put(ATTRIBUTE, store);
+		}
+	}
+
+	/**
+	 * Creates new store configured from the context params.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the JK view attributes store
+	 */
+	private static JKViewAttributesStore createStore(final ExternalContext context) {
+		return new JKViewAttributesStore(toInt(context.getInitParameter(MAX_VIEWS_PARAM), DEFAULT_MAX_VIEWS),
+				toInt(context.getInitParameter(MAX_ATTRIBUTES_PARAM), DEFAULT_MAX_ATTRIBUTES),
+				Boolean.parseBoolean(context.getInitParameter(EVICT_ON_LEAVE_PARAM)));
+	}
+
+	/**
+	 * Parse positive int param.
+	 *
+	 * @param value
+	 *            the value
+	 * @param defaultValue
+	 *            the default value
+	 * @return the int
+	 */
+	private static int toInt(final String value, final int defaultValue) {
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/** The max views. */
+	private final int maxViews;
+
+	/** The max attributes per view. */
+	private final int maxAttributes;
+
+	/** The evict on leave. */
+	private final boolean evictOnLeave;
+
+	/** view -> client id -> attributes, both in access order. */
+	private final LinkedHashMap<String, LinkedHashMap<String, Map<String, Object>>> views = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** view -> attributes count. */
+	private final Map<String, Integer> counts = new HashMap<>();
+
+	/** The total attributes count. */
+	private int attributesCount;
+
+	/** The evictions count. */
+	private long evictions;
+
+	/** The last accessed view. */
+	private String lastView;
+
+	/** Changed since the last {@link #saveChanges(JKViewAttributesStore)}. */
+	private transient boolean changed;
+
+	/**
+	 * Instantiates a new JK view attributes store.
+	 *
+	 * @param maxViews
+	 *            the max views
+	 * @param maxAttributes
+	 *            the max attributes per view
+	 * @param evictOnLeave
+	 *            drop the view attributes when another view is accessed
+	 */
+	public JKViewAttributesStore(final int maxViews, final int maxAttributes, final boolean evictOnLeave) {
+		this.maxViews = maxViews;
+		this.maxAttributes = maxAttributes;
+		this.evictOnLeave = evictOnLeave;
+	}
+
+	/**
+	 * Clear all the views.
+	 */
+	public synchronized void clear() {
+		this.changed = true;
+		this.views.clear();
+		this.counts.clear();
+		this.attributesCount = 0;
+		this.lastView = null;
+	}
+
+	/**
+	 * Gets the attribute.
+	 *
+	 * @param view
+	 *            the view
+	 * @param clientId
+	 *            the client id
+	 * @param name
+	 *            the name
+	 * @return the attribute, or null
+	 */
+	public synchronized Object getAttribute(final String view, final String clientId, final String name) {
+		touch(view);
+		final LinkedHashMap<String, Map<String, Object>> components = this.views.get(view);
+		if (components == null) {
+			return null;
+		}
+		final Map<String, Object> attributes = components.get(clientId);
+		return attributes == null ? null : attributes.get(name);
+	}
+
+	/**
+	 * Gets the total attributes count in all the views.
+	 *
+	 * @return the attributes count
+	 */
+	public synchronized int getAttributesCount() {
+		return this.attributesCount;
+	}
+
+	/**
+	 * Gets the attributes count of the view.
+	 *
+	 * @param view
+	 *            the view
+	 * @return the attributes count
+	 */
+	public synchronized int getAttributesCount(final String view) {
+		final Integer count = this.counts.get(view);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Gets the number of evicted views and components.
+	 *
+	 * @return the evictions
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	public int getMaxAttributes() {
+		return this.maxAttributes;
+	}
+
+	public int getMaxViews() {
+		return this.maxViews;
+	}
+
+	/**
+	 * Gets the views count.
+	 *
+	 * @return the views count
+	 */
+	public synchronized int getViewsCount() {
+		return this.views.size();
+	}
+
+	/**
+	 * Removes the view.
+	 *
+	 * @param view
+	 *            the view
+	 */
+	public synchronized void removeView(final String view) {
+		if (this.views.remove(view) != null) {
+			this.changed = true;
+			final Integer count = this.counts.remove(view);
+			this.attributesCount -= count == null ? 0 : count;
+		}
+	}
+
+	/**
+	 * Sets the attribute, evicts the least recently used components or views
+	 * if the bounds are exceeded.
+	 *
+	 * @param view
+	 *            the view
+	 * @param clientId
+	 *            the client id
+	 * @param name
+	 *            the name
+	 * @param value
+	 *            the value
+	 */
+	public synchronized void setAttribute(final String view, final String clientId, final String name, final Object value) {
+		touch(view);
+		this.changed = true;
+		LinkedHashMap<String, Map<String, Object>> components = this.views.get(view);
+		if (components == null) {
+			components = new LinkedHashMap<>(16, 0.75f, true);
+			this.views.put(view, components);
+		}
+		Map<String, Object> attributes = components.get(clientId);
+		if (attributes == null) {
+			attributes = new HashMap<>();
+			components.put(clientId, attributes);
+		}
+		if (!attributes.containsKey(name)) {
+			updateCount(view, 1);
+		}
+		attributes.put(name, value);
+		// keep the current component even if it alone exceeds the bound
+		final Iterator<Map.Entry<String, Map<String, Object>>> iterator = components.entrySet().iterator();
+		while (getAttributesCount(view) > this.maxAttributes && components.size() > 1) {
+			final Map.Entry<String, Map<String, Object>> eldest = iterator.next();
+			updateCount(view, -eldest.getValue().size());
+			iterator.remove();
+			this.evictions++;
+		}
+		final Iterator<String> viewsIterator = this.views.keySet().iterator();
+		while (this.views.size() > this.maxViews) {
+			final String eldest = viewsIterator.next();
+			final Integer count = this.counts.remove(eldest);
+			this.attributesCount -= count == null ? 0 : count;
+			viewsIterator.remove();
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Checks if the store has changed and resets the flag.
+	 *
+	 * @return true, if changed
+	 */
+	private synchronized boolean takeChanged() {
+		final boolean result = this.changed;
+		this.changed = false;
+		return result;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("view attributes : views=%d/%d , attributes=%d , evictions=%d", this.views.size(), this.maxViews,
+				this.attributesCount, this.evictions);
+	}
+
+	/**
+	 * Record access to the view, drops the previous view if evict on leave is
+	 * enabled.
+	 *
+	 * @param view
+	 *            the view
+	 */
+	private void touch(final String view) {
+		if (this.evictOnLeave && this.lastView != null && !this.lastView.equals(view)) {
+			removeView(this.lastView);
+		}
+		this.lastView = view;
+	}
+
+	/**
+	 * Update the attributes count of the view.
+	 *
+	 * @param view
+	 *            the view
+	 * @param delta
+	 *            the delta
+	 */
+	private void updateCount(final String view, final int delta) {
+		this.counts.put(view, getAttributesCount(view) + delta);
+		this.attributesCount += delta;
+	}
+
+}
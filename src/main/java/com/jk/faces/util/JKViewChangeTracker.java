@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+/**
+ * <B>JKViewChangeTracker</B> records the inputs of a view that changed value
+ * (through value change events) and keeps a running digest of these changes,
+ * so checking if the view has been changed costs O(changed inputs) instead of
+ * visiting the whole tree.
+ * <P/>
+ * The digest is the sum of the difference between the current and the
+ * original value hash of each changed input, it is 0 when nothing changed,
+ * and returns to its previous value if an input is changed back.
+ * <P/>
+ * Enabled by the {@link #VIEW_CHANGE_TRACKING_PARAM} context param, the
+ * tracker is kept in the view map, so it lives as long as the view. Only
+ * changes submitted by the user are tracked, changes done on the model are
+ * not.
+ */
+public class JKViewChangeTracker implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Context param to enable the view changes tracking, default false. */
+	public static final String VIEW_CHANGE_TRACKING_PARAM = "com.jk.faces.VIEW_CHANGE_TRACKING";
+
+	/** The view map attribute. */
+	private static final String ATTRIBUTE = JKViewChangeTracker.class.getName();
+
+	/** The hash of null values. */
+	private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Gets the tracker of the current view.
+	 *
+	 * @param create
+	 *            create it if not found
+	 * @return the tracker, or null if there is no view or not found and
+	 *         create is false
+	 */
+	public static JKViewChangeTracker getCurrentInstance(final boolean create) {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		final UIViewRoot view = context == null ? null : context.getViewRoot();
+		if (view == null) {
+			return null;
+		}
+		final Map<String, Object> viewMap = view.getViewMap(create);
+		if (viewMap == null) {
+			return null;
+		}
+		JKViewChangeTracker tracker = (JKViewChangeTracker) viewMap.get(ATTRIBUTE);
+		if (tracker == null && create) {
+			tracker = new JKViewChangeTracker();
+			viewMap.put(ATTRIBUTE, tracker);
+		}
+		return tracker;
+	}
+
+	/**
+	 * Hash the value without converting it to string.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the hash
+	 */
+	static long hash(final Object value) {
+		if (value == null) {
+			return NULL_HASH;
+		}
+		final int hash = value instanceof Object[] ? Arrays.deepHashCode((Object[]) value) : value.hashCode();
+		return mix(value.getClass().getName().hashCode() * 31L + hash);
+	}
+
+	/**
+	 * Checks if the changes tracking is enabled.
+	 *
+	 * @param context
+	 *            the context
+	 * @return true, if is enabled
+	 */
+	public static boolean isEnabled(final FacesContext context) {
+		return Boolean.parseBoolean(context.getExternalContext().getInitParameter(VIEW_CHANGE_TRACKING_PARAM));
+	}
+
+	/**
+	 * Spread the bits of the value (murmur3 finalizer).
+	 *
+	 * @param value
+	 *            the value
+	 * @return the mixed value
+	 */
+	static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	/** client id -> hash of the value before the first change. */
+	private final Map<String, Long> originalHashes = new HashMap<>();
+
+	/** client id -> contribution to the digest, only changed inputs. */
+	private final Map<String, Long> contributions = new HashMap<>();
+
+	/** The digest. */
+	private long digest;
+
+	/**
+	 * Gets the client ids of the inputs that has different value than the
+	 * original one.
+	 *
+	 * @return the changed client ids
+	 */
+	public synchronized Set<String> getChangedClientIds() {
+		return Collections.unmodifiableSet(new HashSet<>(this.contributions.keySet()));
+	}
+
+	/**
+	 * Gets the running digest of the changes, 0 if nothing changed.
+	 *
+	 * @return the digest
+	 */
+	public synchronized long getDigest() {
+		return this.digest;
+	}
+
+	/**
+	 * Checks if any input has different value than the original one.
+	 *
+	 * @return true, if is changed
+	 */
+	public synchronized boolean isChanged() {
+		return !this.contributions.isEmpty();
+	}
+
+	/**
+	 * Forget all the changes, the current values become the original ones.
+	 */
+	public synchronized void reset() {
+		this.originalHashes.clear();
+		this.contributions.clear();
+		this.digest = 0;
+	}
+
+	/**
+	 * Record value change of input.
+	 *
+	 * @param clientId
+	 *            the client id
+	 * @param oldValue
+	 *            the old value
+	 * @param newValue
+	 *            the new value
+	 */
+	public synchronized void valueChanged(final String clientId, final Object oldValue, final Object newValue) {
+		Long original = this.originalHashes.get(clientId);
+		if (original == null) {
+			original = hash(oldValue);
+			this.originalHashes.put(clientId, original);
+		}
+		final long current = hash(newValue);
+		final Long previous = this.contributions.remove(clientId);
+		if (previous != null) {
+			this.digest -= previous;
+		}
+		// changed back to the original value leaves no contribution
+		if (current != original) {
+			final long contribution = mix(clientId.hashCode() ^ current) - mix(clientId.hashCode() ^ original);
+			this.contributions.put(clientId, contribution);
+			this.digest += contribution;
+		}
+	}
+
+}
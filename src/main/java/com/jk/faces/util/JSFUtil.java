@@ -17,10 +17,14 @@ package com.jk.faces.util;
 
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
@@ -38,6 +42,7 @@ import javax.faces.component.UIComponent;
 import javax.faces.component.UIInput;
 import javax.faces.component.UIViewRoot;
 import javax.faces.component.visit.VisitContext;
+import javax.faces.component.visit.VisitHint;
 import javax.faces.context.FacesContext;
 import javax.faces.context.ResponseWriter;
 import javax.faces.lifecycle.LifecycleFactory;
@@ -65,6 +70,8 @@ public class JSFUtil {
 	private static final String CHECKSUM_POSTFIX = "-checksum";
 	/** The logger. */
 	private static Logger logger = Logger.getLogger(JSFUtil.class.getName());
+	/** The JSF 2.2 detection result, calculated once per JVM. */
+	private static volatile Boolean jsf22;
 
 	/**
 	 * add String <code>contents</code> in HTML row.
@@ -146,7 +153,8 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Builds the view.
+	 * Builds the view and render it to string, the view is rendered once,
+	 * without writing to the current response.
 	 *
 	 * @param context
 	 *            the context
@@ -158,20 +166,7 @@ public class JSFUtil {
 	 */
 	public static String buildView(final FacesContext context, final String viewId) throws IOException {
 		final UIViewRoot view = JSFUtil.createView(viewId);
-		view.encodeAll(FacesContext.getCurrentInstance());
-
-		final ResponseWriter originalWriter = context.getResponseWriter();
-		final StringWriter writer = new StringWriter();
-
-		try {
-			context.setResponseWriter(context.getRenderKit().createResponseWriter(writer, "text/html", "UTF-8"));
-			view.encodeAll(context);
-		} finally {
-			if (originalWriter != null) {
-				context.setResponseWriter(originalWriter);
-			}
-		}
-		return writer.toString();
+		return JSFUtil.renderToString(context, view);
 	}
 
 	/**
@@ -188,7 +183,39 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Calculate checksum.
+	 * Builds the view using {@link #buildView(String)}, or gets it from the
+	 * {@link JKRenderedViewsCache} if it has been rendered before with the
+	 * same dependencies values.
+	 *
+	 * @param viewId
+	 *            the view id
+	 * @param dependencies
+	 *            the EL expressions that the view output depends on (e.g.
+	 *            <code>#{view.locale}</code> , <code>#{mb.employee.id}</code>)
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static String buildCachedView(final String viewId, final String... dependencies) throws IOException {
+		final JKRenderedViewsCache cache = JKRenderedViewsCache.getInstance();
+		if (!cache.isEnabled()) {
+			return JSFUtil.buildView(viewId);
+		}
+		final Object[] values = new Object[dependencies.length];
+		for (int i = 0; i < dependencies.length; i++) {
+			values[i] = JSFUtil.evaluateExpressionToObject(dependencies[i]);
+		}
+		String html = cache.get(viewId, values);
+		if (html == null) {
+			html = JSFUtil.buildView(viewId);
+			cache.put(viewId, values, html);
+		}
+		return html;
+	}
+
+	/**
+	 * Calculate checksum of the values of all the inputs in the component
+	 * tree.
 	 *
 	 * @param component
 	 *            the component
@@ -197,16 +224,27 @@ public class JSFUtil {
 	public static long calculateChecksum(final UIComponent component) {
 		try {
 			final Checksum checksumHandler = new CRC32();
-			final UIFacesVisitor visitors = JSFUtil.visitComponent(component);
-			final List<UIInput> inputs = visitors.getInputs();
-			for (final UIInput uiInput : inputs) {
-				if (uiInput.getValue() == null) {
-					checksumHandler.update("null".getBytes(), 0, 0);
-				} else {
-					final byte[] bytes = uiInput.getValue().toString().getBytes("UTF-8");
-					checksumHandler.update(bytes, 0, bytes.length);
+			// the values are read while visiting, on the request thread, so the
+			// inputs of the data tables are read for each row
+			final UIFacesVisitor visitor = new UIFacesVisitor(UIFacesVisitor.Category.INPUT) {
+				@Override
+				boolean collect(final UIComponent target) {
+					if (target instanceof UIInput) {
+						final Object value = ((UIInput) target).getValue();
+						// marker byte, so null differs from empty and values
+						// boundaries are hashed
+						if (value == null) {
+							checksumHandler.update(0);
+						} else {
+							checksumHandler.update(1);
+							final byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+							checksumHandler.update(bytes, 0, bytes.length);
+						}
+					}
+					return false;
 				}
-			}
+			};
+			JKTreeAnalyzer.collect(FacesContext.getCurrentInstance(), component, EnumSet.noneOf(VisitHint.class), visitor);
 			return checksumHandler.getValue();
 		} catch (final Exception e) {
 			ExceptionUtil.handle(e);
@@ -216,19 +254,49 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Calculate current view checksum.
+	 * Calculate current view checksum, if the changes tracking is enabled
+	 * (see {@link JKViewChangeTracker}), the running digest of the changed
+	 * inputs is returned without visiting the tree.
 	 *
 	 * @return the long
 	 */
 	public static long calculateCurrentViewChecksum() {
-		return JSFUtil.calculateChecksum(FacesContext.getCurrentInstance().getViewRoot());
+		final FacesContext context = FacesContext.getCurrentInstance();
+		if (JKViewChangeTracker.isEnabled(context)) {
+			final JKViewChangeTracker tracker = JKViewChangeTracker.getCurrentInstance(false);
+			return tracker == null ? 0 : tracker.getDigest();
+		}
+		return JSFUtil.calculateChecksum(context.getViewRoot());
 	}
 
 	/**
-	 * Clear view states.
+	 * Clear the component attributes of the current view.
 	 */
 	public static void clearViewStates() {
-		JSFUtil.getViewMap().clear();
+		final JKViewAttributesStore store = JKViewAttributesStore.getCurrentInstance();
+		store.removeView(JSFUtil.getCurrentView());
+		JKViewAttributesStore.saveChanges(store);
+	}
+
+	/**
+	 * Coerce the value to the given type using the expression factory, if not
+	 * already instance of it.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param factory
+	 *            the expression factory
+	 * @param value
+	 *            the value
+	 * @param type
+	 *            the type
+	 * @return the t
+	 */
+	private static <T> T coerce(final ExpressionFactory factory, final Object value, final Class<T> type) {
+		if (value == null || type.isInstance(value)) {
+			return type.cast(value);
+		}
+		return type.cast(factory.coerceToType(value, type));
 	}
 
 	/**
@@ -243,6 +311,28 @@ public class JSFUtil {
 	/*
 	 *
 	 */
+	/**
+	 * Collect the components of the given categories in the component tree,
+	 * walked in parallel if the tree is larger than
+	 * {@link JKTreeAnalyzer#THRESHOLD_PARAM}. Data tables and other row
+	 * iterating components are visited on the request thread, and the values
+	 * of the returned components must be read on the request thread.
+	 *
+	 * @param component
+	 *            the root component
+	 * @param hints
+	 *            the visit hints
+	 * @param first
+	 *            the first category
+	 * @param rest
+	 *            the other categories
+	 * @return the visitor holding the collected components in document order
+	 */
+	public static UIFacesVisitor collectComponents(final UIComponent component, final Set<VisitHint> hints, final UIFacesVisitor.Category first,
+			final UIFacesVisitor.Category... rest) {
+		return JKTreeAnalyzer.collect(FacesContext.getCurrentInstance(), component, hints, new UIFacesVisitor(first, rest));
+	}
+
 	/**
 	 * Creates the method expression.
 	 *
@@ -253,11 +343,28 @@ public class JSFUtil {
 	 * @return the method expression
 	 */
 	public static MethodExpression createMethodExpression(final String expression, final Class<?> returnType) {
+		return JSFUtil.createMethodExpression(expression, returnType, new Class[0]);
+	}
+
+	/**
+	 * Creates the method expression, the parsed expression is cached in
+	 * {@link JKExpressionCache}.
+	 *
+	 * @param expression
+	 *            the expression
+	 * @param returnType
+	 *            the return type
+	 * @param paramTypes
+	 *            the parameters types
+	 * @return the method expression
+	 */
+	public static MethodExpression createMethodExpression(final String expression, final Class<?> returnType, final Class<?>[] paramTypes) {
 		Assert.assertNotNull(expression);
 		// TODO : check the below line????
 		JSFUtil.logger.fine("createMethodEpression:".concat(expression));
 		final FacesContext context = FacesContext.getCurrentInstance();
-		return context.getApplication().getExpressionFactory().createMethodExpression(context.getELContext(), expression, returnType, new Class[0]);
+		return JKExpressionCache.getInstance().getMethodExpression(context.getApplication().getExpressionFactory(), context.getELContext(),
+				expression, returnType, paramTypes);
 	}
 
 	/**
@@ -272,7 +379,8 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Creates the value exception.
+	 * Creates the value exception, the parsed expression is cached in
+	 * {@link JKExpressionCache}.
 	 *
 	 * @param value
 	 *            the value
@@ -281,17 +389,8 @@ public class JSFUtil {
 	 * @return the value expression
 	 */
 	public static ValueExpression createValueException(final String value, final Class<?> clas) {
-		final ExpressionFactory expressionFactory = JSFUtil.getExpressionFactory();
-		if (expressionFactory != null) {
-			final ELContext elContext = FacesContext.getCurrentInstance().getELContext();
-			final ValueExpression ve1 = expressionFactory.createValueExpression(elContext, value, clas);
-			return ve1;
-		} else {
-			final ELContext elContext = FacesContext.getCurrentInstance().getELContext();
-			final ValueExpression ve1 = FacesContext.getCurrentInstance().getApplication().getExpressionFactory().createValueExpression(elContext,
-					value, clas);
-			return ve1;
-		}
+		final ELContext elContext = FacesContext.getCurrentInstance().getELContext();
+		return JKExpressionCache.getInstance().getValueExpression(JSFUtil.getExpressionFactory(), elContext, value, clas);
 	}
 
 	/**
@@ -338,6 +437,26 @@ public class JSFUtil {
 		FacesContext.getCurrentInstance().addMessage(null, msg);
 	}
 
+	/**
+	 * Evaluate the value expression against the current ELContext and coerce
+	 * the result to the given type.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param valueExpression
+	 *            the value expression
+	 * @param type
+	 *            the type
+	 * @return the value, or null if the expression is null
+	 */
+	public static <T> T evaluateExpression(final ValueExpression valueExpression, final Class<T> type) {
+		if (valueExpression == null) {
+			return null;
+		}
+		final FacesContext context = FacesContext.getCurrentInstance();
+		return JSFUtil.coerce(context.getApplication().getExpressionFactory(), valueExpression.getValue(context.getELContext()), type);
+	}
+
 	/**
 	 * Evaluate expression to object.
 	 *
@@ -354,7 +473,8 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Evaluate expression to object.
+	 * Evaluate the value expression directly against the current ELContext,
+	 * without parsing it again.
 	 *
 	 * @param valueExpression
 	 *            the value expression
@@ -364,7 +484,54 @@ public class JSFUtil {
 		if (valueExpression == null) {
 			return null;
 		}
-		return JSFUtil.evaluateExpressionToObject(valueExpression.getExpressionString());
+		return valueExpression.getValue(FacesContext.getCurrentInstance().getELContext());
+	}
+
+	/**
+	 * Evaluate all the value expressions in one call, the faces context, the
+	 * ELContext and the expression factory are looked up once for all of
+	 * them.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type to coerce the values to
+	 * @param valueExpressions
+	 *            the value expressions
+	 * @return the values in the same order, null for null expressions
+	 */
+	public static <T> List<T> evaluateExpressions(final Class<T> type, final List<ValueExpression> valueExpressions) {
+		final List<T> values = new ArrayList<>(valueExpressions.size());
+		if (valueExpressions.isEmpty()) {
+			return values;
+		}
+		final FacesContext context = FacesContext.getCurrentInstance();
+		final ELContext elContext = context.getELContext();
+		final ExpressionFactory factory = context.getApplication().getExpressionFactory();
+		for (final ValueExpression valueExpression : valueExpressions) {
+			values.add(valueExpression == null ? null : JSFUtil.coerce(factory, valueExpression.getValue(elContext), type));
+		}
+		return values;
+	}
+
+	/**
+	 * Find component relative to the base component, when the
+	 * {@link JKComponentIndex#COMPONENT_INDEX_PARAM} context param is true,
+	 * ids that are unique in the current view are resolved from the
+	 * {@link JKComponentIndex} without walking the tree.
+	 *
+	 * @param base
+	 *            the base component
+	 * @param expression
+	 *            the search expression
+	 * @return the component, or null if not found
+	 */
+	public static UIComponent findComponent(final UIComponent base, final String expression) {
+		final FacesContext context = FacesContext.getCurrentInstance();
+		if (!JKComponentIndex.isEnabled(context) || context.getViewRoot() == null) {
+			return base.findComponent(expression);
+		}
+		return JKComponentIndex.getInstance(context).findComponent(base, expression);
 	}
 
 	/**
@@ -420,7 +587,7 @@ public class JSFUtil {
 	 * @return attribute value
 	 */
 	public static boolean getBooleanAttribute(final UIComponent uiComponent, final String key, final boolean defaultValue) {
-		return new Boolean(JSFUtil.getAttribute(uiComponent, key, defaultValue).toString());
+		return JKTypedAttributes.getBoolean(uiComponent, key, defaultValue);
 	}
 
 	/**
@@ -444,42 +611,33 @@ public class JSFUtil {
 	 * @return the component attribute
 	 */
 	public static Object getComponentAttribute(final UIComponent comp, final String attributeName) {
-		final Map map = JSFUtil.getComponentMap(comp);
-		return map.get(attributeName);
+		final JKViewAttributesStore store = JKViewAttributesStore.getCurrentInstance();
+		final Object value = store.getAttribute(JSFUtil.getCurrentView(), comp.getClientId(), attributeName);
+		// evict on leave could drop the previous view
+		JKViewAttributesStore.saveChanges(store);
+		return value;
 	}
 
 	/**
-	 * Gets the component map.
+	 * Gets the component index of the current view, kept until the view tree
+	 * changes if the {@link JKComponentIndex#COMPONENT_INDEX_PARAM} context
+	 * param is true, built on each call otherwise.
 	 *
-	 * @param comp
-	 *            the comp
-	 * @return the component map
-	 */
-	private static Map getComponentMap(final UIComponent comp) {
-		final Map<String, Map<String, Map>> viewMap = JSFUtil.getViewMap();
-		Map componentMap = viewMap.get(comp.getClientId());
-		if (componentMap == null) {
-			componentMap = new HashMap();
-			viewMap.put(comp.getClientId(), componentMap);
-		}
-		return componentMap;
+	 * @return the component index, or null if there is no view root
+	 */
+	public static JKComponentIndex getComponentIndex() {
+		return JKComponentIndex.getCurrentInstance();
 	}
 
 	/**
-	 * Gets the current view.
+	 * Gets the current view, the <code>currentView</code> session attribute,
+	 * then the <code>currentView</code> faces context attribute, then the view
+	 * root id.
 	 *
 	 * @return the current view
 	 */
 	public static String getCurrentView() {
-		Object viewName = FacesContext.getCurrentInstance().getExternalContext().getSessionMap().get(TagAttributeConstants.CURRENT_VIEW);
-		if (viewName != null) {
-			return viewName.toString();
-		}
-		viewName = FacesContext.getCurrentInstance().getAttributes().get(TagAttributeConstants.CURRENT_VIEW);
-		if (viewName != null) {
-			return viewName.toString();
-		}
-		return FacesContext.getCurrentInstance().getViewRoot().getViewId();
+		return JKRequestContext.getCurrentInstance().getCurrentView();
 	}
 
 	/**
@@ -501,17 +659,19 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Gets the expression factory.
+	 * Gets the expression factory of the current facelet context, or the
+	 * application one if not building a view.
 	 *
 	 * @return the expression factory
 	 */
 	public static ExpressionFactory getExpressionFactory() {
-		if (JSFUtil.getFaceletsContext() != null) {
-			return JSFUtil.getFaceletsContext().getExpressionFactory();
-		} else {
-			return null;
+		final FacesContext context = FacesContext.getCurrentInstance();
+		// not memoized, it is available only while building the view
+		final FaceletContext faceletContext = (FaceletContext) context.getAttributes().get(FaceletContext.FACELET_CONTEXT_KEY);
+		if (faceletContext != null) {
+			return faceletContext.getExpressionFactory();
 		}
-
+		return JKRequestContext.getInstance(context).getApplicationExpressionFactory();
 	}
 
 	/**
@@ -538,7 +698,31 @@ public class JSFUtil {
 	 * @return attribute value
 	 */
 	public static int getIntegerAttribute(final UIComponent component, final String key, final Object defaultValue) {
-		return new Integer(JSFUtil.getAttribute(component, key, defaultValue).toString());
+		final Object value = component.getAttributes().get(key);
+		if (value == null) {
+			return defaultValue instanceof Number ? ((Number) defaultValue).intValue() : Integer.parseInt(defaultValue.toString());
+		}
+		return JKTypedAttributes.toInt(component, key, value);
+	}
+
+	/**
+	 * gets the attribute <code>int</code> value, in component
+	 * <code>uiComponent</code> with Key <code>key</code> without boxing the
+	 * default value, string values are parsed once per component (see
+	 * {@link JKTypedAttributes}) </br>
+	 * if the attribute's value is <code>null</code> it return the value of
+	 * <code>defaultValue</code>.
+	 *
+	 * @param component
+	 *            the component
+	 * @param key
+	 *            the key
+	 * @param defaultValue
+	 *            the default value
+	 * @return attribute value
+	 */
+	public static int getIntAttribute(final UIComponent component, final String key, final int defaultValue) {
+		return JKTypedAttributes.getInt(component, key, defaultValue);
 	}
 
 	/**
@@ -585,7 +769,7 @@ public class JSFUtil {
 	 * @return the request map
 	 */
 	public static Map<String, Object> getRequestMap() {
-		return FacesContext.getCurrentInstance().getExternalContext().getRequestMap();
+		return JKRequestContext.getCurrentInstance().getRequestMap();
 	}
 
 	/**
@@ -594,22 +778,17 @@ public class JSFUtil {
 	 * @return the session map
 	 */
 	public static Map<String, Object> getSessionMap() {
-		return FacesContext.getCurrentInstance().getExternalContext().getSessionMap();
+		return JKRequestContext.getCurrentInstance().getSessionMap();
 	}
 
 	/**
-	 * Gets the view map.
+	 * Checks if the current view has been changed since
+	 * {@link #saveCurrentViewChecksum()}.
 	 *
-	 * @return the view map
+	 * @return true, if is current view changed
 	 */
-	private static Map<String, Map<String, Map>> getViewMap() {
-		final String viewName = JSFUtil.getCurrentView();
-		Map<String, Map<String, Map>> viewMap = (Map) JSFUtil.getSessionMap().get(viewName);
-		if (viewMap == null) {
-			viewMap = new HashMap<>();
-			JSFUtil.getSessionMap().put(viewName, viewMap);
-		}
-		return viewMap;
+	public static boolean isCurrentViewChanged() {
+		return JSFUtil.calculateCurrentViewChecksum() != JSFUtil.getCurrentViewOriginalChecksum();
 	}
 
 	/**
@@ -618,17 +797,48 @@ public class JSFUtil {
 	 * @return true, if is JS f22
 	 */
 	public static boolean isJSF22() {
-		final String version = FacesContext.class.getPackage().getImplementationVersion();
+		Boolean jsf22 = JSFUtil.jsf22;
+		if (jsf22 == null) {
+			final String version = FacesContext.class.getPackage().getImplementationVersion();
 
-		if (version != null) {
-			return version.startsWith("2.2");
-		} else {
-			// fallback
-			try {
-				Class.forName("javax.faces.flow.Flow");
-				return true;
-			} catch (final ClassNotFoundException ex) {
-				return false;
+			if (version != null) {
+				jsf22 = version.startsWith("2.2");
+			} else {
+				// fallback
+				try {
+					Class.forName("javax.faces.flow.Flow");
+					jsf22 = true;
+				} catch (final ClassNotFoundException ex) {
+					jsf22 = false;
+				}
+			}
+			JSFUtil.jsf22 = jsf22;
+		}
+		return jsf22;
+	}
+
+	/**
+	 * Render the component to string, without writing to the current
+	 * response.
+	 *
+	 * @param context
+	 *            the context
+	 * @param component
+	 *            the component
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static String renderToString(final FacesContext context, final UIComponent component) throws IOException {
+		final StringWriter writer = new StringWriter();
+		final ResponseWriter originalWriter = context.getResponseWriter();
+		try {
+			context.setResponseWriter(context.getRenderKit().createResponseWriter(writer, "text/html", "UTF-8"));
+			component.encodeAll(context);
+			return writer.toString();
+		} finally {
+			if (originalWriter != null) {
+				context.setResponseWriter(originalWriter);
 			}
 		}
 	}
@@ -646,7 +856,8 @@ public class JSFUtil {
 	}
 
 	/**
-	 * Sets the component attribute.
+	 * Sets the component attribute, kept in the {@link JKViewAttributesStore}
+	 * of the current session.
 	 *
 	 * @param comp
 	 *            the comp
@@ -656,9 +867,23 @@ public class JSFUtil {
 	 *            the atribute value
 	 */
 	public static void setComponentAttribute(final UIComponent comp, final String attributeName, final Object atributeValue) {
-		final Map componentMap = JSFUtil.getComponentMap(comp);
-		componentMap.put(attributeName, atributeValue);
-		System.err.println("Set Compnent Attribute : " + attributeName + " : " + atributeValue);
+		final JKViewAttributesStore store = JKViewAttributesStore.getCurrentInstance();
+		store.setAttribute(JSFUtil.getCurrentView(), comp.getClientId(), attributeName, atributeValue);
+		JKViewAttributesStore.saveChanges(store);
+		if (JSFUtil.logger.isLoggable(Level.FINE)) {
+			JSFUtil.logger.fine("Set Compnent Attribute : " + attributeName + " : " + atributeValue);
+		}
+	}
+
+	/**
+	 * Sets the current view name (the <code>currentView</code> session
+	 * attribute) used to scope the component attributes and checksums.
+	 *
+	 * @param viewName
+	 *            the view name
+	 */
+	public static void setCurrentView(final String viewName) {
+		JKRequestContext.getCurrentInstance().getSessionMap().put(TagAttributeConstants.CURRENT_VIEW, viewName);
 	}
 
 	/**
@@ -706,8 +931,24 @@ public class JSFUtil {
 	 * @return the UI view visitor
 	 */
 	public static UIFacesVisitor visitComponent(final UIComponent component) {
-		final UIFacesVisitor visitor = new UIFacesVisitor();
-		component.visitTree(VisitContext.createVisitContext(FacesContext.getCurrentInstance()), visitor);
+		return JSFUtil.visitComponent(component, new UIFacesVisitor(), EnumSet.noneOf(VisitHint.class));
+	}
+
+	/**
+	 * Visit the component tree with the given visitor, e.g. one that collects
+	 * only the required categories.
+	 *
+	 * @param component
+	 *            the component
+	 * @param visitor
+	 *            the visitor
+	 * @param hints
+	 *            the visit hints, e.g. <code>SKIP_UNRENDERED</code> or
+	 *            <code>SKIP_TRANSIENT</code>
+	 * @return the visitor
+	 */
+	public static UIFacesVisitor visitComponent(final UIComponent component, final UIFacesVisitor visitor, final Set<VisitHint> hints) {
+		component.visitTree(VisitContext.createVisitContext(FacesContext.getCurrentInstance(), null, hints), visitor);
 		return visitor;
 	}
 
@@ -729,9 +970,7 @@ public class JSFUtil {
 	 */
 	public static UIFacesVisitor visitView(final String viewId) {
 		final UIViewRoot view = JSFUtil.createView(viewId);
-		final UIFacesVisitor visitor = new UIFacesVisitor();
-		view.visitTree(VisitContext.createVisitContext(FacesContext.getCurrentInstance()), visitor);
-		return visitor;
+		return JSFUtil.visitComponent(view, new UIFacesVisitor(), EnumSet.noneOf(VisitHint.class));
 	}
 
 	/**
@@ -16,6 +16,8 @@
 package com.jk.faces.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 
 import javax.faces.component.UICommand;
@@ -37,12 +39,87 @@ import com.jk.annotations.Author;
 
 /**
  * The Class UIViewVisitor.
+ * <P/>
+ * Collects only the selected {@link Category categories} (all by default),
+ * the categories of each component class are resolved once and cached, and
+ * the visit is completed once the optional limit of collected components is
+ * reached.
  *
  * @author Jalal Kiswani
  */
 @Author(name = "Jalal H. Kiswani", date = "1/10/2014", version = "1.0")
 public class UIFacesVisitor implements VisitCallback {
 
+	/**
+	 * The categories of the collected components.
+	 */
+	public enum Category {
+		INPUT(UIInput.class), FORM(UIForm.class), COMMAND(UICommand.class), OUTPUT(UIOutput.class), SUB_MENU(UISubmenu.class), COLUMN(
+				Column.class), TABLE(DataTable.class), SELECT_ITEMS(UISelectItems.class), PANEL_GRID(PanelGrid.class);
+
+		private final Class<?> type;
+
+		private Category(final Class<?> type) {
+			this.type = type;
+		}
+
+		/**
+		 * Gets the bit of the category in the masks.
+		 *
+		 * @return the bit
+		 */
+		int bit() {
+			return 1 << ordinal();
+		}
+
+		/**
+		 * Gets the component type of the category.
+		 *
+		 * @return the type
+		 */
+		public Class<?> getType() {
+			return this.type;
+		}
+	}
+
+	/** component class -> categories mask, resolved once per class. */
+	private static final ClassValue<Integer> MASKS = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(final Class<?> type) {
+			int mask = 0;
+			for (final Category category : Category.values()) {
+				if (category.getType().isAssignableFrom(type)) {
+					mask |= category.bit();
+				}
+			}
+			return mask;
+		}
+	};
+
+	/**
+	 * Creates the mask of the categories.
+	 *
+	 * @param categories
+	 *            the categories
+	 * @return the mask
+	 */
+	private static int toMask(final Collection<Category> categories) {
+		int mask = 0;
+		for (final Category category : categories) {
+			mask |= category.bit();
+		}
+		return mask;
+	}
+
+	/** The selected categories mask. */
+	private final int mask;
+
+	/** The max number of components to collect, or -1 for no limit. */
+	private final int limit;
+
+	/** The collected components count. */
+	private int count;
+
 	/** The inputs. */
 	private final List<UIInput> inputs = new ArrayList<>();
 
@@ -70,6 +147,95 @@ public class UIFacesVisitor implements VisitCallback {
 	/** The panel grids. */
 	private List<PanelGrid> panelGrids = new ArrayList<>();
 
+	/**
+	 * Instantiates a new UI faces visitor that collects all the categories.
+	 */
+	public UIFacesVisitor() {
+		this(EnumSet.allOf(Category.class), -1);
+	}
+
+	/**
+	 * Instantiates a new UI faces visitor that collects only the given
+	 * categories.
+	 *
+	 * @param first
+	 *            the first category
+	 * @param rest
+	 *            the other categories
+	 */
+	public UIFacesVisitor(final Category first, final Category... rest) {
+		this(EnumSet.of(first, rest), -1);
+	}
+
+	/**
+	 * Instantiates a new UI faces visitor.
+	 *
+	 * @param categories
+	 *            the categories to collect
+	 * @param limit
+	 *            complete the visit once this number of components has been
+	 *            collected, -1 for no limit
+	 */
+	public UIFacesVisitor(final Collection<Category> categories, final int limit) {
+		this(toMask(categories), limit);
+	}
+
+	/**
+	 * Instantiates a new UI faces visitor.
+	 *
+	 * @param mask
+	 *            the categories mask
+	 * @param limit
+	 *            the limit, -1 for no limit
+	 */
+	private UIFacesVisitor(final int mask, final int limit) {
+		this.mask = mask;
+		this.limit = limit;
+	}
+
+	/**
+	 * Collect the component in its selected categories.
+	 *
+	 * @param target
+	 *            the target
+	 * @return true, if the limit is reached
+	 */
+	boolean collect(final UIComponent target) {
+		final int matches = MASKS.get(target.getClass()) & this.mask;
+		if (matches == 0) {
+			return false;
+		}
+		if ((matches & Category.INPUT.bit()) != 0) {
+			this.inputs.add((UIInput) target);
+		}
+		if ((matches & Category.FORM.bit()) != 0) {
+			this.forms.add((UIForm) target);
+		}
+		if ((matches & Category.COMMAND.bit()) != 0) {
+			this.commands.add((UICommand) target);
+		}
+		if ((matches & Category.OUTPUT.bit()) != 0) {
+			this.outputs.add((UIOutput) target);
+		}
+		if ((matches & Category.SUB_MENU.bit()) != 0) {
+			this.subMenus.add((UISubmenu) target);
+		}
+		if ((matches & Category.COLUMN.bit()) != 0) {
+			this.columns.add((Column) target);
+		}
+		if ((matches & Category.TABLE.bit()) != 0) {
+			this.tables.add((DataTable) target);
+		}
+		if ((matches & Category.SELECT_ITEMS.bit()) != 0) {
+			this.selectItems.add((UISelectItems) target);
+		}
+		if ((matches & Category.PANEL_GRID.bit()) != 0) {
+			this.panelGrids.add((PanelGrid) target);
+		}
+		this.count++;
+		return isLimitReached();
+	}
+
 	/**
 	 * Gets the columns.
 	 *
@@ -79,6 +245,16 @@ public class UIFacesVisitor implements VisitCallback {
 		return this.columns;
 	}
 
+	/**
+	 * Gets the number of collected components, a component that belongs to
+	 * many categories is counted once.
+	 *
+	 * @return the count
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
 	/**
 	 * Gets the commands.
 	 *
@@ -151,6 +327,38 @@ public class UIFacesVisitor implements VisitCallback {
 		return this.tables;
 	}
 
+	/**
+	 * Checks if the category is collected by this visitor.
+	 *
+	 * @param category
+	 *            the category
+	 * @return true, if is collected
+	 */
+	public boolean isCollected(final Category category) {
+		return (this.mask & category.bit()) != 0;
+	}
+
+	/**
+	 * Checks if the visit has been completed because of the limit.
+	 *
+	 * @return true, if is limit reached
+	 */
+	public boolean isLimitReached() {
+		return this.limit >= 0 && this.count >= this.limit;
+	}
+
+	/**
+	 * Checks if the component belongs to one of the selected categories, used
+	 * to filter the components walked off the request thread.
+	 *
+	 * @param target
+	 *            the target
+	 * @return true, if matches
+	 */
+	boolean matches(final UIComponent target) {
+		return (MASKS.get(target.getClass()) & this.mask) != 0;
+	}
+
 	/**
 	 * Sets the panel grids.
 	 *
@@ -173,36 +381,7 @@ public class UIFacesVisitor implements VisitCallback {
 		// if (!target.isRendered()) {
 		// return VisitResult.REJECT;
 		// }
-
-		if (target instanceof UIInput) {
-			this.inputs.add((UIInput) target);
-		}
-		if (target instanceof UIForm) {
-			this.forms.add((UIForm) target);
-		}
-
-		if (target instanceof UICommand) {
-			this.commands.add((UICommand) target);
-		}
-		if (target instanceof UIOutput) {
-			this.outputs.add((UIOutput) target);
-		}
-		if (target instanceof UISubmenu) {
-			this.subMenus.add((UISubmenu) target);
-		}
-		if (target instanceof Column) {
-			this.columns.add((Column) target);
-		}
-		if (target instanceof DataTable) {
-			this.tables.add((DataTable) target);
-		}
-		if (target instanceof UISelectItems) {
-			this.selectItems.add((UISelectItems) target);
-		}
-		if (target instanceof PanelGrid) {
-			this.panelGrids.add((PanelGrid) target);
-		}
-		return VisitResult.ACCEPT;
+		return collect(target) ? VisitResult.COMPLETE : VisitResult.ACCEPT;
 	}
 
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.FactoryFinder;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextFactory;
+import javax.faces.lifecycle.Lifecycle;
+import javax.faces.lifecycle.LifecycleFactory;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import com.jk.faces.util.JSFUtil;
+import com.sun.faces.application.ApplicationAssociate;
+
+/**
+ * <B>JKViewsWarmup</B> discovers the <code>.xhtml</code> views of the webapp
+ * and builds them in parallel on a bounded pool, so the facelets compilation,
+ * the tags decoration and the tree construction are done before the first
+ * user opens the view.
+ * <P/>
+ * Every view is built in its own FacesContext with an in-memory session, the
+ * time and failure of each view is recorded, failures doesn't stop the
+ * warm-up.
+ */
+public class JKViewsWarmup {
+
+	/**
+	 * The warm-up result of single view.
+	 */
+	public static final class Result {
+		private final String viewId;
+		private final long nanos;
+		private final String error;
+
+		Result(final String viewId, final long nanos, final String error) {
+			this.viewId = viewId;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		/**
+		 * Gets the failure message.
+		 *
+		 * @return the error, or null if succeeded
+		 */
+		public String getError() {
+			return this.error;
+		}
+
+		public long getMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.nanos);
+		}
+
+		public long getNanos() {
+			return this.nanos;
+		}
+
+		public String getViewId() {
+			return this.viewId;
+		}
+
+		public boolean isSucceeded() {
+			return this.error == null;
+		}
+
+		@Override
+		public String toString() {
+			return this.viewId + " : " + getMillis() + " ms" + (this.error == null ? "" : " , failed : " + this.error);
+		}
+	}
+
+	/** The Constant VIEW_EXTENSION. */
+	public static final String VIEW_EXTENSION = ".xhtml";
+
+	/** The time to wait for JSF to be initialized, in seconds. */
+	private static final int JSF_INIT_TIMEOUT = 120;
+
+	/** The logger. */
+	static Logger logger = Logger.getLogger(JKViewsWarmup.class.getName());
+
+	/** The servlet context. */
+	private final ServletContext context;
+
+	/** The threads. */
+	private final int threads;
+
+	/** The results. */
+	private final Map<String, Result> results = new ConcurrentHashMap<>();
+
+	/** Count down when all the views are done. */
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	/** The views count. */
+	private volatile int viewsCount = -1;
+
+	/** The executor. */
+	private volatile ExecutorService executor;
+
+	/**
+	 * Instantiates a new JK views warmup.
+	 *
+	 * @param context
+	 *            the context
+	 * @param threads
+	 *            the pool size
+	 */
+	public JKViewsWarmup(final ServletContext context, final int threads) {
+		this.context = context;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Wait until the warm-up is done.
+	 *
+	 * @param timeout
+	 *            the timeout
+	 * @param unit
+	 *            the unit
+	 * @return true, if warm
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public boolean awaitWarm(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return this.done.await(timeout, unit);
+	}
+
+	/**
+	 * Build single view in a new faces context.
+	 *
+	 * @param viewId
+	 *            the view id
+	 */
+	protected void buildView(final String viewId) {
+		final long start = System.nanoTime();
+		String error = null;
+		FacesContext facesContext = null;
+		HttpServletRequest request = null;
+		try {
+			final FacesContextFactory contextFactory = (FacesContextFactory) FactoryFinder.getFactory(FactoryFinder.FACES_CONTEXT_FACTORY);
+			final LifecycleFactory lifecycleFactory = (LifecycleFactory) FactoryFinder.getFactory(FactoryFinder.LIFECYCLE_FACTORY);
+			final Lifecycle lifecycle = lifecycleFactory.getLifecycle(LifecycleFactory.DEFAULT_LIFECYCLE);
+			request = JKWarmupRequests.createRequest(this.context, viewId);
+			facesContext = contextFactory.getFacesContext(this.context, request, JKWarmupRequests.createResponse(), lifecycle);
+			facesContext.setViewRoot(JSFUtil.createView(viewId));
+		} catch (final Throwable e) {
+			error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : " : " + e.getMessage());
+			logger.log(Level.FINE, "warm-up failed for view : ".concat(viewId), e);
+		} finally {
+			if (facesContext != null) {
+				facesContext.release();
+			}
+			if (request != null) {
+				JKWarmupRequests.invalidateSession(request);
+			}
+		}
+		this.results.put(viewId, new Result(viewId, System.nanoTime() - start, error));
+	}
+
+	/**
+	 * Find all the views under the given path, excluding WEB-INF , META-INF
+	 * and resources.
+	 *
+	 * @param path
+	 *            the path
+	 * @param views
+	 *            the views
+	 */
+	protected void findViews(final String path, final List<String> views) {
+		final Set<String> paths = this.context.getResourcePaths(path);
+		if (paths == null) {
+			return;
+		}
+		for (final String child : paths) {
+			if (child.endsWith("/")) {
+				if (!child.equals("/WEB-INF/") && !child.equals("/META-INF/") && !child.equals("/resources/")) {
+					findViews(child, views);
+				}
+			} else if (child.endsWith(VIEW_EXTENSION)) {
+				views.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Gets the failed views count.
+	 *
+	 * @return the failures count
+	 */
+	public int getFailuresCount() {
+		int count = 0;
+		for (final Result result : this.results.values()) {
+			if (!result.isSucceeded()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the results of the views done so far, ordered by view id.
+	 *
+	 * @return the results
+	 */
+	public Map<String, Result> getResults() {
+		return Collections.unmodifiableMap(new TreeMap<>(this.results));
+	}
+
+	/**
+	 * Gets the discovered views count.
+	 *
+	 * @return the views count, or -1 if not discovered yet
+	 */
+	public int getViewsCount() {
+		return this.viewsCount;
+	}
+
+	/**
+	 * Checks if all the views has been warmed up (succeeded or failed).
+	 *
+	 * @return true, if is warm
+	 */
+	public boolean isWarm() {
+		return this.done.getCount() == 0;
+	}
+
+	/**
+	 * Run the warm-up in the calling thread, the views are built on the pool.
+	 */
+	protected void run() {
+		final long start = System.nanoTime();
+		try {
+			if (!waitForJsf()) {
+				logger.warning("JSF is not initialized , warm-up skipped");
+				return;
+			}
+			final List<String> views = new ArrayList<>();
+			findViews("/", views);
+			this.viewsCount = views.size();
+			logger.info(String.format("warming up %d views using %d threads", views.size(), this.threads));
+			final ExecutorService executor = this.executor;
+			for (final String view : views) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						buildView(view);
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+			logger.info(String.format("warm-up done in %d ms , %d views , %d failed", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+					views.size(), getFailuresCount()));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final RuntimeException e) {
+			logger.log(Level.WARNING, "warm-up failed", e);
+		} finally {
+			this.done.countDown();
+		}
+	}
+
+	/**
+	 * Start the warm-up in background.
+	 */
+	public void start() {
+		final AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "jk-faces-warmup-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final Thread coordinator = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				JKViewsWarmup.this.run();
+			}
+		}, "jk-faces-warmup");
+		coordinator.setDaemon(true);
+		coordinator.start();
+	}
+
+	/**
+	 * Stop the warm-up, views already in progress are interrupted.
+	 */
+	public void stop() {
+		final ExecutorService executor = this.executor;
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Wait for JSF to be initialized, the listeners order is not guaranteed.
+	 *
+	 * @return true, if initialized
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	protected boolean waitForJsf() throws InterruptedException {
+		for (int i = 0; i < JSF_INIT_TIMEOUT * 10; i++) {
+			if (ApplicationAssociate.getInstance(this.context) != null) {
+				return true;
+			}
+			Thread.sleep(100);
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.warmup;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletRegistration;
+
+/**
+ * <B>JKViewsWarmupListener</B> starts the {@link JKViewsWarmup} if the
+ * {@link #WARMUP_PARAM} context param is true, and registers the
+ * {@link JKWarmupStatusServlet} on {@link #WARMUP_STATUS_PATH} to be used as
+ * readiness probe.
+ */
+public class JKViewsWarmupListener implements ServletContextListener {
+
+	/** Context param to enable the views warm-up, default is false. */
+	public static final String WARMUP_PARAM = "com.jk.faces.WARMUP";
+
+	/**
+	 * Context param for the warm-up pool size, default is the available
+	 * processors.
+	 */
+	public static final String WARMUP_THREADS_PARAM = "com.jk.faces.WARMUP_THREADS";
+
+	/** The path of the warm-up status. */
+	public static final String WARMUP_STATUS_PATH = "/jk-faces/warmup";
+
+	/** The servlet context attribute holding the {@link JKViewsWarmup}. */
+	public static final String WARMUP_ATTRIBUTE = JKViewsWarmup.class.getName();
+
+	/**
+	 * Gets the warm-up of the given context.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the warm-up, or null if not enabled
+	 */
+	public static JKViewsWarmup getWarmup(final ServletContext context) {
+		return (JKViewsWarmup) context.getAttribute(WARMUP_ATTRIBUTE);
+	}
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		final JKViewsWarmup warmup = getWarmup(event.getServletContext());
+		if (warmup != null) {
+			warmup.stop();
+			event.getServletContext().removeAttribute(WARMUP_ATTRIBUTE);
+		}
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		final ServletContext context = event.getServletContext();
+		if (!Boolean.parseBoolean(context.getInitParameter(WARMUP_PARAM))) {
+			return;
+		}
+		final String threads = context.getInitParameter(WARMUP_THREADS_PARAM);
+		final JKViewsWarmup warmup = new JKViewsWarmup(context,
+				threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim()));
+		context.setAttribute(WARMUP_ATTRIBUTE, warmup);
+		final ServletRegistration.Dynamic status = context.addServlet("jk-faces-warmup-status", JKWarmupStatusServlet.class);
+		if (status != null) {
+			status.addMapping(WARMUP_STATUS_PATH);
+		}
+		warmup.start();
+	}
+
+}
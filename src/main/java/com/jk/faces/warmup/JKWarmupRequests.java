@@ -0,0 +1,326 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.warmup;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+
+import com.jk.faces.util.JKViewAttributesSessionListener;
+
+/**
+ * <B>JKWarmupRequests</B> creates minimal <code>GET</code> requests and
+ * discarding responses, enough to create a FacesContext and build a view
+ * outside of real requests. The session is an in-memory stub created on
+ * demand, it should be dropped by {@link #invalidateSession(HttpServletRequest)}
+ * once the view is built.
+ */
+class JKWarmupRequests {
+
+	/**
+	 * Response output that discards everything.
+	 */
+	static final class NullOutputStream extends ServletOutputStream {
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(final WriteListener listener) {
+		}
+
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	}
+
+	/** The sessions counter, used for the sessions ids. */
+	private static final AtomicLong SESSIONS = new AtomicLong();
+
+	/**
+	 * Default value of the given type, for the not handled methods.
+	 */
+	private static Object defaultValue(final Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the request of the view.
+	 *
+	 * @param context
+	 *            the servlet context
+	 * @param viewId
+	 *            the view id
+	 * @return the http servlet request
+	 */
+	static HttpServletRequest createRequest(final ServletContext context, final String viewId) {
+		final Map<String, Object> attributes = new HashMap<>();
+		final HttpSession[] session = new HttpSession[1];
+		final InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) {
+				switch (method.getName()) {
+				case "getSession":
+					// getSession() and getSession(true) create it
+					if (session[0] == null && (args == null || args.length == 0 || (Boolean) args[0])) {
+						session[0] = createSession(context);
+					}
+					return session[0];
+				case "getAttribute":
+					return attributes.get(args[0]);
+				case "setAttribute":
+					attributes.put((String) args[0], args[1]);
+					return null;
+				case "removeAttribute":
+					attributes.remove(args[0]);
+					return null;
+				case "getAttributeNames":
+					return Collections.enumeration(attributes.keySet());
+				case "getServletContext":
+					return context;
+				case "getContextPath":
+					return context.getContextPath();
+				case "getServletPath":
+					return viewId;
+				case "getRequestURI":
+					return context.getContextPath().concat(viewId);
+				case "getRequestURL":
+					return new StringBuffer("http://localhost").append(context.getContextPath()).append(viewId);
+				case "getMethod":
+					return "GET";
+				case "getScheme":
+					return "http";
+				case "getProtocol":
+					return "HTTP/1.1";
+				case "getServerName":
+				case "getLocalName":
+				case "getRemoteAddr":
+				case "getRemoteHost":
+					return "localhost";
+				case "getServerPort":
+				case "getLocalPort":
+					return 80;
+				case "getCharacterEncoding":
+					return "UTF-8";
+				case "getLocale":
+					return Locale.getDefault();
+				case "getLocales":
+					return Collections.enumeration(Collections.singletonList(Locale.getDefault()));
+				case "getParameterMap":
+					return Collections.emptyMap();
+				case "getParameterNames":
+				case "getHeaderNames":
+				case "getHeaders":
+					return Collections.emptyEnumeration();
+				case "getDispatcherType":
+					return DispatcherType.REQUEST;
+				case "getDateHeader":
+				case "getIntHeader":
+				case "getContentLength":
+					return method.getReturnType() == long.class ? -1L : -1;
+				case "toString":
+					return "warm-up request : ".concat(viewId);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return defaultValue(method.getReturnType());
+				}
+			}
+		};
+		return (HttpServletRequest) Proxy.newProxyInstance(JKWarmupRequests.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, handler);
+	}
+
+	/**
+	 * Creates an in-memory session, its attributes are kept until it is
+	 * invalidated.
+	 *
+	 * @param context
+	 *            the servlet context
+	 * @return the http session
+	 */
+	static HttpSession createSession(final ServletContext context) {
+		final Map<String, Object> attributes = new ConcurrentHashMap<>();
+		final String id = "jk-warmup-" + SESSIONS.incrementAndGet();
+		final long creationTime = System.currentTimeMillis();
+		final int[] maxInactiveInterval = { 1800 };
+		final InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) {
+				switch (method.getName()) {
+				case "getAttribute":
+				case "getValue":
+					return attributes.get(args[0]);
+				case "setAttribute":
+				case "putValue":
+					if (args[1] == null) {
+						attributes.remove(args[0]);
+					} else {
+						attributes.put((String) args[0], args[1]);
+					}
+					return null;
+				case "removeAttribute":
+				case "removeValue":
+					attributes.remove(args[0]);
+					return null;
+				case "getAttributeNames":
+					return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+				case "getValueNames":
+					return attributes.keySet().toArray(new String[0]);
+				case "getId":
+					return id;
+				case "getCreationTime":
+				case "getLastAccessedTime":
+					return creationTime;
+				case "getServletContext":
+					return context;
+				case "getMaxInactiveInterval":
+					return maxInactiveInterval[0];
+				case "setMaxInactiveInterval":
+					maxInactiveInterval[0] = (Integer) args[0];
+					return null;
+				case "isNew":
+					return true;
+				case "invalidate":
+					// the container listeners are not notified for this
+					// session, drop the view attributes kept outside of it
+					new JKViewAttributesSessionListener().sessionDestroyed(new HttpSessionEvent((HttpSession) proxy));
+					attributes.clear();
+					return null;
+				case "toString":
+					return "warm-up session : ".concat(id);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return defaultValue(method.getReturnType());
+				}
+			}
+		};
+		return (HttpSession) Proxy.newProxyInstance(JKWarmupRequests.class.getClassLoader(), new Class<?>[] { HttpSession.class },
+				handler);
+	}
+
+	/**
+	 * Invalidate the session of the request, if it has been created.
+	 *
+	 * @param request
+	 *            the request created by
+	 *            {@link #createRequest(ServletContext, String)}
+	 */
+	static void invalidateSession(final HttpServletRequest request) {
+		final HttpSession session = request.getSession(false);
+		if (session != null) {
+			session.invalidate();
+		}
+	}
+
+	/**
+	 * Creates response that discards the output.
+	 *
+	 * @return the http servlet response
+	 */
+	static HttpServletResponse createResponse() {
+		final ServletOutputStream out = new NullOutputStream();
+		final PrintWriter writer = new PrintWriter(new OutputStreamWriter((OutputStream) out, Charset.forName("UTF-8")));
+		final Map<String, Object> state = new HashMap<>();
+		state.put("getCharacterEncoding", "UTF-8");
+		state.put("getContentType", "text/html");
+		state.put("getLocale", Locale.getDefault());
+		final InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) {
+				switch (method.getName()) {
+				case "getOutputStream":
+					return out;
+				case "getWriter":
+					return writer;
+				case "setCharacterEncoding":
+					state.put("getCharacterEncoding", args[0]);
+					return null;
+				case "setContentType":
+					state.put("getContentType", args[0]);
+					return null;
+				case "setLocale":
+					state.put("getLocale", args[0]);
+					return null;
+				case "getCharacterEncoding":
+				case "getContentType":
+				case "getLocale":
+					return state.get(method.getName());
+				case "encodeURL":
+				case "encodeRedirectURL":
+				case "encodeUrl":
+				case "encodeRedirectUrl":
+					return args[0];
+				case "getStatus":
+					return 200;
+				case "getHeaderNames":
+				case "getHeaders":
+					return Collections.emptyList();
+				case "toString":
+					return "warm-up response";
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					return defaultValue(method.getReturnType());
+				}
+			}
+		};
+		return (HttpServletResponse) Proxy.newProxyInstance(JKWarmupRequests.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, handler);
+	}
+
+}
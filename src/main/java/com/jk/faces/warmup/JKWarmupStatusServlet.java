@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.warmup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <B>JKWarmupStatusServlet</B> reports the {@link JKViewsWarmup} progress,
+ * responds with <code>200</code> when warm and <code>503</code> while warming
+ * up, so it can be used as readiness probe. Add <code>?details=true</code> to
+ * list the time and failure of each view.
+ */
+public class JKWarmupStatusServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+		final JKViewsWarmup warmup = JKViewsWarmupListener.getWarmup(getServletContext());
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-store");
+		if (warmup == null) {
+			response.getWriter().println("disabled");
+			return;
+		}
+		final boolean warm = warmup.isWarm();
+		response.setStatus(warm ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		final PrintWriter writer = response.getWriter();
+		writer.println(warm ? "warm" : "warming");
+		writer.println(String.format("views : %d , done : %d , failed : %d", warmup.getViewsCount(), warmup.getResults().size(),
+				warmup.getFailuresCount()));
+		if (Boolean.parseBoolean(request.getParameter("details"))) {
+			for (final JKViewsWarmup.Result result : warmup.getResults().values()) {
+				writer.println(result);
+			}
+		}
+	}
+
+}
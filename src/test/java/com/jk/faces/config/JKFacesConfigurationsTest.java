@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link JKFacesConfigurations#getDecorationFingerprint()}.
+ */
+public class JKFacesConfigurationsTest {
+
+	private static final String FIRST_LIBRARY = "http://example.com/jsf/abc";
+	private static final String SECOND_LIBRARY = "http://example.com/jsf/xyz";
+	private static final String CONFLICTING_LIBRARY = "http://example.com/jsf/pqr";
+
+	/**
+	 * Creates configurations with the libraries loaded in the given order.
+	 *
+	 * @param urls
+	 *            the libraries urls in loading order
+	 * @return the configurations
+	 */
+	private static JKFacesConfigurations load(final String... urls) {
+		final Map<String, Set<String>> libraries = new LinkedHashMap<>();
+		for (final String url : urls) {
+			libraries.put(url, tags(url));
+		}
+		final JKFacesConfigurations config = new JKFacesConfigurations();
+		config.loadTagLibraries(libraries);
+		return config;
+	}
+
+	private static Set<String> tags(final String url) {
+		if (url.equals(FIRST_LIBRARY)) {
+			return new LinkedHashSet<>(Arrays.asList("panel", "input", "button"));
+		}
+		if (url.equals(CONFLICTING_LIBRARY)) {
+			return new LinkedHashSet<>(Arrays.asList("panel", "grid"));
+		}
+		return new LinkedHashSet<>(Arrays.asList("table", "column"));
+	}
+
+	@Test
+	public void testFingerprintDoesNotDependOnLibrariesOrder() {
+		final String fingerprint = load(FIRST_LIBRARY, SECOND_LIBRARY).getDecorationFingerprint();
+		assertEquals(fingerprint, load(SECOND_LIBRARY, FIRST_LIBRARY).getDecorationFingerprint());
+	}
+
+	@Test
+	public void testFingerprintDependsOnConflictingLibrariesOrder() {
+		// "panel" is resolved to the library loaded first
+		final String fingerprint = load(FIRST_LIBRARY, CONFLICTING_LIBRARY).getDecorationFingerprint();
+		assertNotEquals(fingerprint, load(CONFLICTING_LIBRARY, FIRST_LIBRARY).getDecorationFingerprint());
+	}
+
+	@Test
+	public void testFingerprintDependsOnLibraries() {
+		final String fingerprint = load(FIRST_LIBRARY, SECOND_LIBRARY).getDecorationFingerprint();
+		assertNotEquals(fingerprint, load(FIRST_LIBRARY).getDecorationFingerprint());
+	}
+
+}
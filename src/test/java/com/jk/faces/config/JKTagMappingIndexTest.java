@@ -0,0 +1,130 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.faces.view.Location;
+import javax.faces.view.facelets.Tag;
+import javax.faces.view.facelets.TagAttribute;
+
+import org.junit.Test;
+
+import com.sun.faces.facelets.tag.TagAttributeImpl;
+import com.sun.faces.facelets.tag.TagAttributesImpl;
+
+/**
+ * Tests of {@link JKTagMappingIndex} resolution order.
+ */
+public class JKTagMappingIndexTest {
+
+	private static final Location LOCATION = new Location("/index.xhtml", -1, -1);
+
+	/**
+	 * Creates a configured mapping of the source tag "a".
+	 *
+	 * @param targetQName
+	 *            the target q name
+	 * @param conditions
+	 *            the conditions
+	 * @return the mapping
+	 */
+	private static JKTagMapping mapping(final String targetQName, final JKTagCondition... conditions) {
+		final JKTagMapping mapping = new JKTagMapping();
+		mapping.setSourceQName("a");
+		mapping.setTargetQName(targetQName);
+		mapping.setConditions(Arrays.asList(conditions));
+		return mapping;
+	}
+
+	/**
+	 * Creates the tag "a" with the given attributes name value pairs.
+	 *
+	 * @param attributes
+	 *            the attributes
+	 * @return the tag
+	 */
+	private static Tag tag(final String... attributes) {
+		final TagAttribute[] tagAttributes = new TagAttribute[attributes.length / 2];
+		for (int i = 0; i < tagAttributes.length; i++) {
+			tagAttributes[i] = new TagAttributeImpl(LOCATION, "", attributes[i * 2], attributes[i * 2], attributes[i * 2 + 1]);
+		}
+		return new Tag(LOCATION, "", "a", "a", new TagAttributesImpl(tagAttributes));
+	}
+
+	/**
+	 * The first mapping of the sorted list that matches the tag.
+	 *
+	 * @param sorted
+	 *            the sorted mappings
+	 * @param tag
+	 *            the tag
+	 * @return the mapping
+	 */
+	private static JKTagMapping scan(final List<JKTagMapping> sorted, final Tag tag) {
+		for (final JKTagMapping mapping : sorted) {
+			if (!mapping.isMatchable()) {
+				continue;
+			}
+			boolean matches = true;
+			for (final JKTagCondition condition : mapping.getAllConditions()) {
+				matches &= condition.matches(JKTagMappingIndex.getAttributeValue(tag.getAttributes().getAll(), condition.getAttributeName()));
+			}
+			if (matches) {
+				return mapping;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testFirstSortedMappingWinsOverMoreConditions() {
+		final JKTagMapping fewer = mapping("h:commandLink", new JKTagCondition("href", null, "#", null));
+		final JKTagMapping more = mapping("p:commandLink", new JKTagCondition("href", null, "#", null), new JKTagCondition("id", null, null, true));
+		final List<JKTagMapping> sorted = new ArrayList<>(Arrays.asList(more, fewer));
+		Collections.sort(sorted);
+		assertEquals(fewer, sorted.get(0));
+
+		final JKTagMappingIndex index = new JKTagMappingIndex(sorted);
+		assertEquals(fewer, index.find(tag("href", "#top", "id", "link")));
+		assertEquals(fewer, index.find(tag("href", "#top")));
+		assertNull(index.find(tag("href", "/index.xhtml")));
+	}
+
+	@Test
+	public void testIndexMatchesScanOfSortedList() {
+		final List<JKTagMapping> sorted = new ArrayList<>(Arrays.asList(
+				mapping("p:commandLink", new JKTagCondition("href", null, "#", null), new JKTagCondition("id", null, null, true)),
+				mapping("h:outputLink", new JKTagCondition("href", null, "/", null)),
+				mapping("h:link", new JKTagCondition("href", "/index.xhtml", null, null), new JKTagCondition("target", null, null, false)),
+				mapping("o:anchor", new JKTagCondition("id", null, null, true)), mapping("z:link")));
+		Collections.sort(sorted);
+		final JKTagMappingIndex index = new JKTagMappingIndex(sorted);
+		final List<Tag> tags = Arrays.asList(tag(), tag("href", "#top"), tag("href", "#top", "id", "link"), tag("href", "/index.xhtml"),
+				tag("href", "/index.xhtml", "target", "_blank"), tag("href", "/home.xhtml", "id", "home"), tag("id", "anchor"),
+				tag("href", "http://example.com"));
+		for (final Tag tag : tags) {
+			assertEquals(tag.toString(), scan(sorted, tag), index.find(tag));
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2016 Jalal Kiswani.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jk.faces.decorators;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jk.faces.config.JKFacesConfigurations;
+import com.sun.faces.facelets.tag.AbstractTagLibrary;
+
+/**
+ * Round trip of a view through {@link JKFaceletPreDecorator} and the runtime
+ * check of {@link JKTagDecorator}.
+ */
+public class JKFaceletPreDecoratorTest {
+
+	private static final String FIRST_LIBRARY = "http://example.com/jsf/abc";
+	private static final String SECOND_LIBRARY = "http://example.com/jsf/xyz";
+	private static final String VIEW = "/index.xhtml";
+
+	/**
+	 * Creates a container tag library.
+	 *
+	 * @param namespace
+	 *            the namespace
+	 * @param tagNames
+	 *            the tag names
+	 * @return the library
+	 */
+	private static AbstractTagLibrary library(final String namespace, final String... tagNames) {
+		return new AbstractTagLibrary(namespace) {
+			{
+				for (final String tagName : tagNames) {
+					addComponent(tagName, "javax.faces.Panel", null);
+				}
+			}
+		};
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Pre-decorate the view with the libraries of the build, then check the
+	 * list against configurations loaded from the container libraries.
+	 *
+	 * @param build
+	 *            the build time libraries
+	 * @param container
+	 *            the container libraries
+	 * @return true, if the pre-decorated view is used at runtime
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private boolean roundTrip(final List<AbstractTagLibrary> build, final List<AbstractTagLibrary> container) throws IOException {
+		final File source = this.folder.newFolder("source");
+		final File target = this.folder.newFolder("target");
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(source, VIEW.substring(1))), "UTF-8")) {
+			writer.write("<html xmlns=\"http://www.w3.org/1999/xhtml\"><body><input type=\"text\" name=\"a\"/><panel/></body></html>");
+		}
+
+		JKFacesConfigurations.reload(null);
+		final List<String> views = new JKFaceletPreDecorator(JKFacesConfigurations.getTagLibraries(build)).decorate(source, target);
+		assertTrue(views.contains(VIEW));
+
+		final JKFacesConfigurations runtime = JKFacesConfigurations.reload(null);
+		runtime.loadTagLibraries(JKFacesConfigurations.getTagLibraries(container));
+		final JKTagDecorator decorator = new JKTagDecorator();
+		final File list = new File(target, "WEB-INF/classes".concat(JKFaceletPreDecorator.PRE_DECORATED_VIEWS_LIST));
+		assertTrue(decorator.readPreDecoratedViews(new FileInputStream(list)).contains(VIEW));
+		return decorator.isPreDecorationValid(runtime);
+	}
+
+	@Test
+	public void testSameLibrariesUsePreDecoratedView() throws IOException {
+		final List<AbstractTagLibrary> libraries = Arrays.asList(library(FIRST_LIBRARY, "panel", "toolbar"), library(SECOND_LIBRARY, "grid"));
+		assertTrue(roundTrip(libraries, libraries));
+	}
+
+	@Test
+	public void testConflictingLibrariesOrderDecoratesAtRuntime() throws IOException {
+		final AbstractTagLibrary first = library(FIRST_LIBRARY, "panel", "toolbar");
+		final AbstractTagLibrary second = library(SECOND_LIBRARY, "panel", "grid");
+		assertFalse(roundTrip(Arrays.asList(first, second), Arrays.asList(second, first)));
+	}
+
+	@Test
+	public void testMissingLibraryDecoratesAtRuntime() throws IOException {
+		final AbstractTagLibrary first = library(FIRST_LIBRARY, "panel", "toolbar");
+		assertFalse(roundTrip(Arrays.asList(first), Arrays.asList(first, library(SECOND_LIBRARY, "grid"))));
+	}
+
+}